@@ -0,0 +1,212 @@
+import edu.princeton.cs.algs4.In;
+import edu.princeton.cs.algs4.StdOut;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+// solves many boards at once on a work-stealing pool, handing back each
+// result as soon as its board is done rather than in submission order
+public class BatchSolver {
+
+    public enum Engine { A_STAR, IDA_STAR, BIDIRECTIONAL }
+
+    // boards queued on the pool per worker, so that a long stream of boards
+    // is not read into memory all at once
+    private static final int QUEUED_PER_WORKER = 4;
+
+    private ForkJoinPool pool;
+    private int parallelism;
+    private long timeoutNanos;
+    private Engine engine;
+    private Heuristic heuristic;
+
+    // solve on parallelism workers with the given engine, giving up on any board
+    // that takes longer than timeoutMillis (0 for no limit); heuristic may be null,
+    // and is not used by the bidirectional engine
+    public BatchSolver(int parallelism, long timeoutMillis, Engine engine, Heuristic heuristic) {
+        if (parallelism <= 0 || timeoutMillis < 0)
+            throw new IllegalArgumentException("Parallelism must be positive and timeout non-negative");
+        if (engine == null) throw new IllegalArgumentException("Null engine");
+        this.pool = new ForkJoinPool(parallelism);
+        this.parallelism = parallelism;
+        this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        this.engine = engine;
+        this.heuristic = heuristic;
+    }
+
+    // solve every board in boards, naming each result by its position in it
+    public void solve(Iterable<Board> boards, Consumer<Result> results) {
+        if (boards == null || results == null) throw new IllegalArgumentException("Null argument");
+        CompletionService<Result> completed = new ExecutorCompletionService<>(pool);
+        int pending = 0, index = 0;
+        for (Board board : boards) {
+            String name = Integer.toString(index++);
+            completed.submit(() -> solve(name, () -> board));
+            if (++pending == parallelism * QUEUED_PER_WORKER) {
+                results.accept(take(completed));
+                pending--;
+            }
+        }
+        for (; pending > 0; pending--) results.accept(take(completed));
+    }
+
+    // solve the board in every regular file of directory, naming each result by its file
+    public void solve(Path directory, Consumer<Result> results) throws IOException {
+        if (directory == null || results == null) throw new IllegalArgumentException("Null argument");
+        CompletionService<Result> completed = new ExecutorCompletionService<>(pool);
+        int pending = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, Files::isRegularFile)) {
+            for (Path file : files) {
+                completed.submit(() -> solve(file.getFileName().toString(), () -> read(file)));
+                if (++pending == parallelism * QUEUED_PER_WORKER) {
+                    results.accept(take(completed));
+                    pending--;
+                }
+            }
+        }
+        for (; pending > 0; pending--) results.accept(take(completed));
+    }
+
+    // stop the workers once the current boards are done
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    // a board that cannot be read or solved is reported in its result rather
+    // than failing the rest of the batch
+    private Result solve(String name, Supplier<Board> source) {
+        long start = System.nanoTime();
+        long deadline = timeoutNanos == 0 ? 0 : start + timeoutNanos;
+        // 0 is reserved for no deadline
+        if (timeoutNanos != 0 && deadline == 0) deadline = 1;
+        Board board = null;
+        try {
+            board = source.get();
+            PuzzleSolver solver;
+            switch (engine) {
+                case A_STAR:
+                    solver = new Solver(board, heuristic, deadline);
+                    break;
+                case IDA_STAR:
+                    solver = new IDAStarSolver(board, heuristic, deadline);
+                    break;
+                default:
+                    // the backward search needs distances to the initial board,
+                    // which the goal-directed heuristics cannot give
+                    solver = new BidirectionalSolver(board, deadline);
+                    break;
+            }
+            return new Result(name, board, solver.moves(), false, null, System.nanoTime() - start);
+        }
+        catch (CancellationException e) {
+            return new Result(name, board, -1, true, null, System.nanoTime() - start);
+        }
+        catch (RuntimeException e) {
+            return new Result(name, board, -1, false, e, System.nanoTime() - start);
+        }
+    }
+
+    private static Result take(CompletionService<Result> completed) {
+        try {
+            return completed.take().get();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a board", e);
+        }
+        catch (ExecutionException e) {
+            throw new IllegalStateException("Unable to solve board", e.getCause());
+        }
+    }
+
+    private static Board read(Path file) {
+        In in = new In(file.toFile());
+        int n = in.readInt();
+        int[][] tiles = new int[n][n];
+        for (int i = 0; i < n; i++)
+            for (int j = 0; j < n; j++)
+                tiles[i][j] = in.readInt();
+        return new Board(tiles);
+    }
+
+    public static class Result {
+        private String name;
+        private Board board;
+        private int moves;
+        private boolean timedOut;
+        private RuntimeException error;
+        private long elapsedNanos;
+
+        public Result(String name, Board board, int moves, boolean timedOut,
+                      RuntimeException error, long elapsedNanos) {
+            this.name = name;
+            this.board = board;
+            this.moves = moves;
+            this.timedOut = timedOut;
+            this.error = error;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public String name() {
+            return this.name;
+        }
+
+        public Board board() {
+            return this.board;
+        }
+
+        // min number of moves to solve the board; -1 if unsolvable, timed out or failed
+        public int moves() {
+            return this.moves;
+        }
+
+        public boolean timedOut() {
+            return this.timedOut;
+        }
+
+        // why the board could not be read or solved; null if it was
+        public RuntimeException error() {
+            return this.error;
+        }
+
+        public long elapsedNanos() {
+            return this.elapsedNanos;
+        }
+
+        public String toString() {
+            String outcome;
+            if (error != null) outcome = "failed - " + error.getMessage();
+            else if (timedOut) outcome = "timed out";
+            else if (moves < 0) outcome = "no solution possible";
+            else outcome = "minimum number of moves = " + moves;
+            return String.format("%s: %s (%.1f ms)", name, outcome, elapsedNanos / 1e6);
+        }
+    }
+
+    // solves every board file in the directory args[0], with optional parallelism
+    // args[1], timeout in milliseconds args[2], engine args[3] (A_STAR, IDA_STAR
+    // or BIDIRECTIONAL) and pattern database file args[4]
+    public static void main(String[] args) throws IOException {
+        Path directory = Paths.get(args[0]);
+        int parallelism = args.length > 1 ? Integer.parseInt(args[1])
+                                          : Runtime.getRuntime().availableProcessors();
+        long timeoutMillis = args.length > 2 ? Long.parseLong(args[2]) : 0;
+        Engine engine = args.length > 3 ? Engine.valueOf(args[3]) : Engine.A_STAR;
+        Heuristic heuristic = args.length > 4 ? PatternDatabase.load(Paths.get(args[4])) : null;
+
+        BatchSolver batch = new BatchSolver(parallelism, timeoutMillis, engine, heuristic);
+        batch.solve(directory, StdOut::println);
+        batch.shutdown();
+    }
+}
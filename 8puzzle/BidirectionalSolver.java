@@ -0,0 +1,266 @@
+import edu.princeton.cs.algs4.In;
+import edu.princeton.cs.algs4.Queue;
+import edu.princeton.cs.algs4.Stack;
+import edu.princeton.cs.algs4.StdOut;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.concurrent.CancellationException;
+
+// bidirectional A* that meets in the middle: one search runs forward from the
+// initial board towards the goal and another backward from the goal towards the
+// initial board, each guided by the Manhattan distance to its own target. a
+// node's priority is the larger of its f-value and twice its moves, so neither
+// side searches much past half of the solution length. every board reached by
+// both searches gives a candidate solution, and the shortest candidate is
+// known to be optimal once it is no longer than a lower bound on the
+// solutions that have not been found yet
+public class BidirectionalSolver implements PuzzleSolver {
+
+    private boolean solvable;
+    private int moves;
+    // the two halves of the shortest solution found, which meet at the same board
+    private SearchNode forwardMeeting;
+    private SearchNode backwardMeeting;
+
+    // goal positions for the backward search: the row and column of each tile
+    // on the initial board
+    private int[] initialRow;
+    private int[] initialCol;
+
+    // System.nanoTime() at which the search gives up; 0 for no limit
+    private long deadline;
+
+    // find a solution to the initial board (using bidirectional A*)
+    public BidirectionalSolver(Board initial) {
+        if (initial == null) throw new IllegalArgumentException("Null argument to constructor");
+        solve(initial);
+    }
+
+    // find a solution to the initial board, throwing a CancellationException if
+    // the search is still running at deadline (see BatchSolver)
+    BidirectionalSolver(Board initial, long deadline) {
+        if (initial == null) throw new IllegalArgumentException("Null argument to constructor");
+        this.deadline = deadline;
+        solve(initial);
+    }
+
+    private void solve(Board initial) {
+        this.moves = -1;
+        this.solvable = initial.isSolvable();
+        if (!this.solvable) return;
+
+        int n = initial.dimension();
+        this.initialRow = new int[n * n];
+        this.initialCol = new int[n * n];
+        for (int i = 0; i < n * n; i++) {
+            initialRow[initial.tileAt(i)] = i / n;
+            initialCol[initial.tileAt(i)] = i % n;
+        }
+
+        Frontier forward = new Frontier(initial, true);
+        Frontier backward = new Frontier(Board.goal(n), false);
+        forward.meet(forward.queue.min(), backward);
+
+        long expanded = 0;
+        while (this.moves < 0 || this.moves > lowerBound(forward, backward)) {
+            if (forward.isExhausted() || backward.isExhausted()) break;
+            // raise whichever side holds the bound down, the smaller one on a tie
+            int forwardPriority = forward.minPriority(), backwardPriority = backward.minPriority();
+            if (forwardPriority < backwardPriority
+                    || (forwardPriority == backwardPriority
+                    && forward.queue.size() <= backward.queue.size()))
+                forward.expand(backward);
+            else backward.expand(forward);
+
+            if (Board.pastDeadline(deadline, ++expanded))
+                throw new CancellationException("Search passed its deadline");
+        }
+    }
+
+    // no solution still to be found can be shorter than the lower of the two
+    // smallest priorities left, or than the sum of the fewest moves queued on
+    // each side plus the move that would join them
+    private static int lowerBound(Frontier forward, Frontier backward) {
+        int bound = Math.min(forward.minPriority(), backward.minPriority());
+        return Math.max(bound, forward.minMoves() + backward.minMoves() + 1);
+    }
+
+    // Manhattan distance from board to the initial board
+    private int distanceToInitial(Board board) {
+        int n = board.dimension(), distance = 0, tile;
+        for (int i = 0; i < n * n; i++) {
+            tile = board.tileAt(i);
+            if (tile < 1) continue;
+            distance += Math.abs((i / n) - initialRow[tile]) + Math.abs((i % n) - initialCol[tile]);
+        }
+        return distance;
+    }
+
+    // is the initial board solvable?
+    public boolean isSolvable() {
+        return this.solvable;
+    }
+
+    // min number of moves to solve initial board; -1 if unsolvable
+    public int moves() {
+        return this.moves;
+    }
+
+    // sequence of boards in a shortest solution; null if unsolvable
+    public Iterable<Board> solution() {
+        if (!isSolvable()) return null;
+        Stack<Board> firstHalf = new Stack<>();
+        for (SearchNode step = forwardMeeting; step != null; step = step.previous)
+            firstHalf.push(step.board);
+
+        Queue<Board> solutionSteps = new Queue<>();
+        for (Board board : firstHalf) solutionSteps.enqueue(board);
+        for (SearchNode step = backwardMeeting.previous; step != null; step = step.previous)
+            solutionSteps.enqueue(step.board);
+        return solutionSteps;
+    }
+
+    // test client (see below)
+    public static void main(String[] args) {
+
+        // create initial board from file
+        In in = new In(args[0]);
+        int n = in.readInt();
+        int[][] tiles = new int[n][n];
+        for (int i = 0; i < n; i++)
+            for (int j = 0; j < n; j++)
+                tiles[i][j] = in.readInt();
+        Board initial = new Board(tiles);
+
+        // solve the puzzle
+        BidirectionalSolver solver = new BidirectionalSolver(initial);
+
+        // print solution to standard output
+        if (!solver.isSolvable())
+            StdOut.println("No solution possible");
+        else {
+            StdOut.println("Minimum number of moves = " + solver.moves());
+            for (Board board : solver.solution())
+                StdOut.println(board);
+        }
+    }
+
+    private class Frontier {
+        private boolean forward;
+        private BucketQueue<SearchNode> queue;
+        // boards already expanded in this direction
+        private HashSet<Board> closed;
+        // the node with the fewest moves from this side's start for every board
+        // this side has queued, which is also where the other side looks for meetings
+        private HashMap<Board, SearchNode> reached;
+        // number of queued nodes with each move count, and the lowest such count
+        private int[] queuedByMoves;
+        private int minMoves;
+
+        public Frontier(Board start, boolean forward) {
+            this.forward = forward;
+            this.queue = new BucketQueue<>();
+            this.closed = new HashSet<>();
+            this.reached = new HashMap<>();
+            this.queuedByMoves = new int[1];
+            insert(new SearchNode(null, start, 0, estimate(start)));
+        }
+
+        public int minPriority() {
+            discardExpanded();
+            return queue.isEmpty() ? Integer.MAX_VALUE : queue.min().priority;
+        }
+
+        public int minMoves() {
+            discardExpanded();
+            if (queue.isEmpty()) return Integer.MAX_VALUE / 2;
+            while (queuedByMoves[minMoves] == 0) minMoves++;
+            return minMoves;
+        }
+
+        public boolean isExhausted() {
+            discardExpanded();
+            return queue.isEmpty();
+        }
+
+        public void expand(Frontier other) {
+            SearchNode min = delMin();
+            closed.add(min.board);
+            int moves = min.moves + 1;
+            for (Board neighbor : min.board.neighbors()) {
+                if (closed.contains(neighbor)) continue;
+                SearchNode best = reached.get(neighbor);
+                if (best != null && best.moves <= moves) continue;
+                SearchNode node = new SearchNode(min, neighbor, moves, estimate(min, neighbor));
+                insert(node);
+                meet(node, other);
+            }
+        }
+
+        // record the path through node if the other side has reached its board
+        // and the two halves together beat the best solution so far
+        public void meet(SearchNode node, Frontier other) {
+            SearchNode match = other.reached.get(node.board);
+            if (match == null) return;
+            int length = node.moves + match.moves;
+            if (moves >= 0 && length >= moves) return;
+            moves = length;
+            forwardMeeting = forward ? node : match;
+            backwardMeeting = forward ? match : node;
+        }
+
+        private int estimate(Board board) {
+            return forward ? board.manhattan() : distanceToInitial(board);
+        }
+
+        // the estimate for neighbor, updated from its parent's by the one tile that moved
+        private int estimate(SearchNode parent, Board neighbor) {
+            if (forward) return neighbor.manhattan();
+            int n = neighbor.dimension(), from = neighbor.blankIndex(), to = parent.board.blankIndex();
+            int tile = neighbor.tileAt(to);
+            return parent.estimate
+                    - Math.abs((from / n) - initialRow[tile]) - Math.abs((from % n) - initialCol[tile])
+                    + Math.abs((to / n) - initialRow[tile]) + Math.abs((to % n) - initialCol[tile]);
+        }
+
+        private void insert(SearchNode node) {
+            reached.put(node.board, node);
+            queue.insert(node, node.priority, node.moves);
+            if (node.moves >= queuedByMoves.length) {
+                int[] grown = new int[2 * node.moves];
+                System.arraycopy(queuedByMoves, 0, grown, 0, queuedByMoves.length);
+                queuedByMoves = grown;
+            }
+            queuedByMoves[node.moves]++;
+            if (node.moves < minMoves) minMoves = node.moves;
+        }
+
+        private SearchNode delMin() {
+            SearchNode min = queue.delMin();
+            queuedByMoves[min.moves]--;
+            return min;
+        }
+
+        // drop queued nodes whose board was already expanded through a shorter path
+        private void discardExpanded() {
+            while (!queue.isEmpty() && closed.contains(queue.min().board)) delMin();
+        }
+    }
+
+    private static class SearchNode {
+        private SearchNode previous;
+        private Board board;
+        private int moves;
+        private int estimate;
+        private int priority;
+
+        public SearchNode(SearchNode previous, Board board, int moves, int estimate) {
+            this.previous = previous;
+            this.board = board;
+            this.moves = moves;
+            this.estimate = estimate;
+            this.priority = Math.max(estimate + moves, 2 * moves);
+        }
+    }
+}
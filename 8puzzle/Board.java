@@ -4,22 +4,84 @@ import java.util.Arrays;
 
 public class Board {
 
-    private int dimension;
-    private int[][] tiles;
-    private int[] blankCoordinates;
+    // boards up to 4-by-4 fit in a single long at 4 bits per tile; anything
+    // larger uses one unsigned byte per tile until the tile values outgrow a byte
+    private static final int PACKED_MAX_DIMENSION = 4;
+    private static final int BYTE_MAX_DIMENSION = 16;
+
+    // directions the blank can move in, numbered so that the opposite of
+    // direction d is always d ^ 2
+    static final int UP = 0;
+    static final int RIGHT = 1;
+    static final int DOWN = 2;
+    static final int LEFT = 3;
+
+    private final int dimension;
+
+    // exactly one of these holds the tiles, stored row-major so that
+    // tiles[row][col] lives at flat index (row * n) + col
+    private long packed;
+    private byte[] bytes;
+    private char[] chars;
+
+    // flat index of the blank tile
+    private int blank;
+
+    // both heuristics are computed once for the board passed in by the client
+    // and then adjusted by the single tile that moves when a neighbor is made
+    private int hamming;
+    private int manhattan;
 
     // create a board from an n-by-n array of tiles,
     // where tiles[row][col] = tile at (row, col)
     public Board(int[][] tiles) {
         this.dimension = tiles.length;
-        this.tiles = new int[this.dimension][this.dimension];
+        int n = this.dimension;
+
+        if (n > BYTE_MAX_DIMENSION) this.chars = new char[n * n];
+        else if (n > PACKED_MAX_DIMENSION) this.bytes = new byte[n * n];
 
-        for (int i = 0; i < this.dimension; i++) {
-            for (int j = 0; j < this.dimension; j++) {
-                if (tiles[i][j] == 0) this.blankCoordinates = new int[] { i, j };
-                this.tiles[i][j] = tiles[i][j];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                if (tiles[i][j] == 0) this.blank = (n * i) + j;
+                set((n * i) + j, tiles[i][j]);
             }
         }
+        computeHeuristics();
+    }
+
+    // the solved n-by-n board
+    static Board goal(int n) {
+        int[][] tiles = new int[n][n];
+        for (int i = 0; i < n * n; i++) tiles[i / n][i % n] = (i + 1) % (n * n);
+        return new Board(tiles);
+    }
+
+    // copy of board, sharing no mutable state with it
+    private Board(Board board) {
+        this.dimension = board.dimension;
+        this.packed = board.packed;
+        if (board.bytes != null) this.bytes = board.bytes.clone();
+        if (board.chars != null) this.chars = board.chars.clone();
+        this.blank = board.blank;
+        this.hamming = board.hamming;
+        this.manhattan = board.manhattan;
+    }
+
+    // create the neighbor of board reached by sliding the tile at flat
+    // index from into the blank square
+    private Board(Board board, int from) {
+        this(board);
+
+        int tile = board.tileAt(from);
+        set(board.blank, tile);
+        set(from, 0);
+        this.blank = from;
+
+        // only the moved tile changes its contribution to either heuristic
+        this.manhattan = board.manhattan - distance(tile, from) + distance(tile, board.blank);
+        this.hamming = board.hamming - (isHome(tile, from) ? 0 : 1)
+                + (isHome(tile, board.blank) ? 0 : 1);
     }
 
     // string representation of this board
@@ -29,7 +91,7 @@ public class Board {
         str.append(n).append("\n");
         for (int i = 0; i < n; i++) {
             for (int j = 0; j < n; j++) {
-                str.append(String.format("%2d", this.tiles[i][j])).append(" ");
+                str.append(String.format("%2d", tileAt((n * i) + j))).append(" ");
             }
             str.append("\n");
         }
@@ -43,30 +105,12 @@ public class Board {
 
     // number of tiles out of place
     public int hamming() {
-        int hamming = 0, n = dimension(), currentValue;
-        for (int i = 0; i < n; i++) {
-            for (int j = 0; j < n; j++) {
-                currentValue = this.tiles[i][j];
-                if (currentValue > 0 && currentValue != (n * i) + j + 1) hamming++;
-            }
-        }
-        return hamming;
+        return this.hamming;
     }
 
     // sum of Manhattan distances between tiles and goal
     public int manhattan() {
-        int expectedRow, expectedCol, currentValue, manhattan = 0, n = dimension();
-        for (int i = 0; i < n; i++) {
-            for (int j = 0; j < n; j++) {
-                currentValue = this.tiles[i][j];
-                if (currentValue < 1) continue;
-                expectedRow = (currentValue - 1) / n;
-                manhattan += Math.abs(i - expectedRow);
-                expectedCol = (currentValue - 1) % n;
-                manhattan += Math.abs(j - expectedCol);
-            }
-        }
-        return manhattan;
+        return this.manhattan;
     }
 
     // is this board the goal board?
@@ -78,95 +122,188 @@ public class Board {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         Board board = (Board) o;
-        return dimension == board.dimension && Arrays.deepEquals(tiles, board.tiles);
+        return dimension == board.dimension && packed == board.packed
+                && Arrays.equals(bytes, board.bytes) && Arrays.equals(chars, board.chars);
+    }
+
+    public int hashCode() {
+        if (bytes != null) return Arrays.hashCode(bytes);
+        if (chars != null) return Arrays.hashCode(chars);
+        // boards that differ by one move differ in only a few bits of packed,
+        // so spread those bits over the whole hash before folding to an int
+        long h = packed * 0x9E3779B97F4A7C15L;
+        h ^= h >>> 32;
+        return (int) h ^ dimension;
     }
 
     // all neighboring boards
     public Iterable<Board> neighbors() {
         Queue<Board> neighbors = new Queue<>();
-        Board neighbor;
-        int tileValue, n = dimension();
+        int n = dimension(), row = blank / n, col = blank % n;
 
         // tile moved down
-        if (blankCoordinates[0] > 0) {
-            neighbor = new Board(this.tiles);
-            // swap non-blank tile with blank tile
-            tileValue = neighbor.tiles[blankCoordinates[0] - 1][blankCoordinates[1]];
-            neighbor.tiles[blankCoordinates[0]][blankCoordinates[1]] = tileValue;
-            neighbor.tiles[blankCoordinates[0] - 1][blankCoordinates[1]] = 0;
-            // update neighbor's coordinates of blank tile
-            neighbor.blankCoordinates = new int[] { blankCoordinates[0] - 1, blankCoordinates[1] };
-            neighbors.enqueue(neighbor);
-        }
+        if (row > 0) neighbors.enqueue(new Board(this, blank - n));
 
         // tile moved left
-        if (blankCoordinates[1] < (n - 1)) {
-            neighbor = new Board(this.tiles);
-            tileValue = neighbor.tiles[blankCoordinates[0]][blankCoordinates[1] + 1];
-            neighbor.tiles[blankCoordinates[0]][blankCoordinates[1]] = tileValue;
-            neighbor.tiles[blankCoordinates[0]][blankCoordinates[1] + 1] = 0;
-            neighbor.blankCoordinates = new int[] { blankCoordinates[0], blankCoordinates[1] + 1 };
-            neighbors.enqueue(neighbor);
-        }
+        if (col < (n - 1)) neighbors.enqueue(new Board(this, blank + 1));
 
         // tile moved up
-        if (blankCoordinates[0] < (n - 1)) {
-            neighbor = new Board(this.tiles);
-            tileValue = neighbor.tiles[blankCoordinates[0] + 1][blankCoordinates[1]];
-            neighbor.tiles[blankCoordinates[0]][blankCoordinates[1]] = tileValue;
-            neighbor.tiles[blankCoordinates[0] + 1][blankCoordinates[1]] = 0;
-            neighbor.blankCoordinates = new int[] { blankCoordinates[0] + 1, blankCoordinates[1] };
-            neighbors.enqueue(neighbor);
-        }
+        if (row < (n - 1)) neighbors.enqueue(new Board(this, blank + n));
 
         // tile moved right
-        if (blankCoordinates[1] > 0) {
-            neighbor = new Board(this.tiles);
-            tileValue = neighbor.tiles[blankCoordinates[0]][blankCoordinates[1] - 1];
-            neighbor.tiles[blankCoordinates[0]][blankCoordinates[1]] = tileValue;
-            neighbor.tiles[blankCoordinates[0]][blankCoordinates[1] - 1] = 0;
-            neighbor.blankCoordinates = new int[] { blankCoordinates[0], blankCoordinates[1] - 1 };
-            neighbors.enqueue(neighbor);
-        }
+        if (col > 0) neighbors.enqueue(new Board(this, blank - 1));
 
         return neighbors;
     }
 
     // a board that is obtained by exchanging any pair of tiles
     public Board twin() {
-        Board twin = new Board(this.tiles);
+        Board twin = new Board(this);
         int n = dimension();
-        int[] firstTileCoordinates, secondTileCoordinates;
-
-        firstTileCoordinates = secondTileCoordinates = null;
+        int first = -1, second = -1;
 
         // get first non-blank tile from first row
         for (int j = 0; j < n; j++) {
-            if (twin.tiles[0][j] > 0) {
-                firstTileCoordinates = new int[] { 0, j };
+            if (tileAt(j) > 0) {
+                first = j;
                 break;
             }
         }
 
         // get first non-blank tile from last row
         for (int j = 0; j < n; j++) {
-            if (twin.tiles[n - 1][j] > 0) {
-                secondTileCoordinates = new int[] { n - 1, j };
+            if (tileAt((n * (n - 1)) + j) > 0) {
+                second = (n * (n - 1)) + j;
                 break;
             }
         }
 
-        if (firstTileCoordinates == null || secondTileCoordinates == null)
+        if (first < 0 || second < 0)
             throw new IllegalArgumentException("Invalid board - entire row of blank tiles");
 
         // swap tiles
-        int firstTileValue = twin.tiles[firstTileCoordinates[0]][firstTileCoordinates[1]];
-        twin.tiles[firstTileCoordinates[0]][firstTileCoordinates[1]]
-                = twin.tiles[secondTileCoordinates[0]][secondTileCoordinates[1]];
-        twin.tiles[secondTileCoordinates[0]][secondTileCoordinates[1]] = firstTileValue;
+        int firstTileValue = twin.tileAt(first);
+        twin.set(first, twin.tileAt(second));
+        twin.set(second, firstTileValue);
+        twin.computeHeuristics();
         return twin;
     }
 
+    // can the goal be reached from this board? reading the tiles row-major and
+    // skipping the blank, a board is solvable when that sequence has an even
+    // number of inversions for odd n, or when inversions plus the blank's row
+    // is odd for even n
+    boolean isSolvable() {
+        int n = dimension(), length = (n * n) - 1;
+
+        // the parity of the inversion count equals the parity of the permutation,
+        // which is (length - number of cycles) and takes O(n^2) to count
+        int[] sequence = new int[length];
+        for (int i = 0, k = 0; i < n * n; i++) {
+            if (i != blank) sequence[k++] = tileAt(i) - 1;
+        }
+        boolean[] visited = new boolean[length];
+        int cycles = 0;
+        for (int k = 0; k < length; k++) {
+            if (visited[k]) continue;
+            cycles++;
+            for (int j = k; !visited[j]; j = sequence[j]) visited[j] = true;
+        }
+        int inversionParity = (length - cycles) % 2;
+
+        if (n % 2 == 1) return inversionParity == 0;
+        return (inversionParity + (blank / n)) % 2 == 1;
+    }
+
+    // is the whole board held in packedTiles()?
+    boolean isPacked() {
+        return bytes == null && chars == null;
+    }
+
+    // the tiles of a board up to 4-by-4, 4 bits each in row-major order from
+    // the least significant bits; two such boards are equal if these are
+    long packedTiles() {
+        return packed;
+    }
+
+    // flat index of the blank tile
+    int blankIndex() {
+        return this.blank;
+    }
+
+    // flat index the blank moves to in direction d; -1 if that is off the board
+    int blankTarget(int d) {
+        return step(blank, dimension(), d);
+    }
+
+    // flat index next to index on an n-by-n board in direction d; -1 if that is
+    // off the board. Solver, IDAStarSolver and PatternDatabase all move the
+    // blank through this
+    static int step(int index, int n, int d) {
+        int row = index / n, col = index % n;
+        switch (d) {
+            case UP:
+                return row > 0 ? index - n : -1;
+            case RIGHT:
+                return col < (n - 1) ? index + 1 : -1;
+            case DOWN:
+                return row < (n - 1) ? index + n : -1;
+            case LEFT:
+                return col > 0 ? index - 1 : -1;
+            default:
+                throw new IllegalArgumentException("Unable to parse direction");
+        }
+    }
+
+    // has a search that has done count units of work passed deadline (a
+    // System.nanoTime() value, 0 for no limit)? the clock is only read every
+    // 1024 units, since reading it costs about as much as an expansion
+    static boolean pastDeadline(long deadline, long count) {
+        return deadline != 0 && (count & 1023) == 0 && System.nanoTime() - deadline > 0;
+    }
+
+    // the neighbor reached by moving the blank in direction d; null if off the board
+    Board slide(int d) {
+        int from = blankTarget(d);
+        return from < 0 ? null : new Board(this, from);
+    }
+
+    // tile at flat index i, where i = (row * n) + col
+    int tileAt(int i) {
+        if (bytes != null) return bytes[i] & 0xFF;
+        if (chars != null) return chars[i];
+        return (int) (packed >>> (i << 2)) & 0xF;
+    }
+
+    private void set(int i, int tile) {
+        if (bytes != null) bytes[i] = (byte) tile;
+        else if (chars != null) chars[i] = (char) tile;
+        else packed = (packed & ~(0xFL << (i << 2))) | ((long) tile << (i << 2));
+    }
+
+    // full O(n^2) scan, only needed when a board is not derived from a single move
+    private void computeHeuristics() {
+        int n = dimension(), tile;
+        this.hamming = 0;
+        this.manhattan = 0;
+        for (int i = 0; i < n * n; i++) {
+            tile = tileAt(i);
+            if (tile < 1) continue;
+            if (!isHome(tile, i)) this.hamming++;
+            this.manhattan += distance(tile, i);
+        }
+    }
+
+    // Manhattan distance between flat index i and the goal position of tile
+    private int distance(int tile, int i) {
+        int n = dimension();
+        return Math.abs((i / n) - ((tile - 1) / n)) + Math.abs((i % n) - ((tile - 1) % n));
+    }
+
+    private boolean isHome(int tile, int i) {
+        return tile == i + 1;
+    }
+
     // unit testing (not graded)
     public static void main(String[] args) {
     }
@@ -0,0 +1,125 @@
+import java.util.NoSuchElementException;
+
+// a min priority queue for small non-negative integer priorities, kept as an
+// array of stacks indexed by priority f and, within each f, by the cost g
+// already paid to reach the item. delMin() takes from the highest g among the
+// lowest f, newest first, so A* favours nodes closest to a solution. insert and
+// delMin are O(1) apart from skipping over empty buckets
+public class BucketQueue<Item> {
+
+    private static final int INITIAL_CAPACITY = 4;
+
+    // buckets[f][g] is a stack holding sizes[f][g] items
+    private Object[][][] buckets;
+    private int[][] sizes;
+    // highest g with a non-empty bucket for each f; -1 if there is none
+    private int[] topG;
+    private int minF;
+    private int size;
+
+    // create an empty queue
+    public BucketQueue() {
+        this.buckets = new Object[0][][];
+        this.sizes = new int[0][];
+        this.topG = new int[0];
+        this.minF = 0;
+        this.size = 0;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // add item with priority f, reached at cost g (0 <= g <= f)
+    public void insert(Item item, int f, int g) {
+        if (f < 0 || g < 0 || g > f) throw new IllegalArgumentException("Invalid priority");
+        if (f >= buckets.length) growF(f);
+        if (g >= buckets[f].length) growG(f, g);
+
+        Object[] stack = buckets[f][g];
+        if (stack == null) {
+            stack = new Object[INITIAL_CAPACITY];
+            buckets[f][g] = stack;
+        }
+        else if (sizes[f][g] == stack.length) {
+            Object[] grown = new Object[stack.length * 2];
+            System.arraycopy(stack, 0, grown, 0, stack.length);
+            stack = grown;
+            buckets[f][g] = stack;
+        }
+        stack[sizes[f][g]++] = item;
+
+        if (g > topG[f]) topG[f] = g;
+        if (size == 0 || f < minF) minF = f;
+        size++;
+    }
+
+    // the item delMin() would return
+    @SuppressWarnings("unchecked")
+    public Item min() {
+        if (isEmpty()) throw new NoSuchElementException("Priority queue underflow");
+        int g = topG[minF];
+        return (Item) buckets[minF][g][sizes[minF][g] - 1];
+    }
+
+    // priority f of the item delMin() would return
+    public int minF() {
+        if (isEmpty()) throw new NoSuchElementException("Priority queue underflow");
+        return minF;
+    }
+
+    // cost g of the item delMin() would return
+    public int minG() {
+        if (isEmpty()) throw new NoSuchElementException("Priority queue underflow");
+        return topG[minF];
+    }
+
+    @SuppressWarnings("unchecked")
+    public Item delMin() {
+        if (isEmpty()) throw new NoSuchElementException("Priority queue underflow");
+        int f = minF, g = topG[f];
+        Object[] stack = buckets[f][g];
+        Item item = (Item) stack[--sizes[f][g]];
+        // drop the reference so the item can be collected
+        stack[sizes[f][g]] = null;
+        size--;
+
+        while (topG[f] >= 0 && sizes[f][topG[f]] == 0) topG[f]--;
+        if (size > 0) {
+            while (topG[minF] < 0) minF++;
+        }
+        return item;
+    }
+
+    private void growF(int f) {
+        int capacity = Math.max(f + 1, buckets.length * 2);
+        Object[][][] grownBuckets = new Object[capacity][][];
+        int[][] grownSizes = new int[capacity][];
+        int[] grownTopG = new int[capacity];
+        System.arraycopy(buckets, 0, grownBuckets, 0, buckets.length);
+        System.arraycopy(sizes, 0, grownSizes, 0, sizes.length);
+        System.arraycopy(topG, 0, grownTopG, 0, topG.length);
+        for (int i = buckets.length; i < capacity; i++) {
+            grownBuckets[i] = new Object[0][];
+            grownSizes[i] = new int[0];
+            grownTopG[i] = -1;
+        }
+        buckets = grownBuckets;
+        sizes = grownSizes;
+        topG = grownTopG;
+    }
+
+    private void growG(int f, int g) {
+        // g never exceeds f, so every bucket for f can be made at once
+        Object[][] grownBuckets = new Object[f + 1][];
+        int[] grownSizes = new int[f + 1];
+        System.arraycopy(buckets[f], 0, grownBuckets, 0, buckets[f].length);
+        System.arraycopy(sizes[f], 0, grownSizes, 0, sizes[f].length);
+        buckets[f] = grownBuckets;
+        sizes[f] = grownSizes;
+    }
+}
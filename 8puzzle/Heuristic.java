@@ -0,0 +1,11 @@
+// an admissible estimate of the moves left to solve a board, so that the
+// search engines can be run with something stronger than Board.manhattan().
+// an estimate need not be consistent (PatternDatabase is not): Solver reopens
+// an expanded board whenever a shorter path reaches it, and IDAStarSolver
+// keeps no closed set, so both still find shortest solutions
+public interface Heuristic {
+
+    // lower bound on the number of moves to the goal for the n-by-n board
+    // whose tile at (row, col) is tiles[(row * n) + col]
+    int estimate(int[] tiles, int n);
+}
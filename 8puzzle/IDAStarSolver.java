@@ -0,0 +1,180 @@
+import edu.princeton.cs.algs4.In;
+import edu.princeton.cs.algs4.Queue;
+import edu.princeton.cs.algs4.StdOut;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.concurrent.CancellationException;
+
+public class IDAStarSolver implements PuzzleSolver {
+
+    private static final int FOUND = -1;
+
+    private Board initial;
+    private boolean solvable;
+
+    // the search works on a single mutable copy of the tiles and the blank
+    // direction taken at each depth, so memory stays proportional to the
+    // length of the solution no matter how many nodes are visited
+    private int n;
+    private int[] tiles;
+    private int blank;
+    private byte[] path;
+    private int moves;
+
+    // optional replacement for the incrementally maintained manhattan distance
+    private Heuristic heuristic;
+
+    // System.nanoTime() at which the search gives up; 0 for no limit
+    private long deadline;
+    private long visited;
+
+    // find a solution to the initial board (using iterative deepening A*)
+    public IDAStarSolver(Board initial) {
+        if (initial == null) throw new IllegalArgumentException("Null argument to constructor");
+        solve(initial);
+    }
+
+    // find a solution to the initial board, guided by the given heuristic
+    public IDAStarSolver(Board initial, Heuristic heuristic) {
+        if (initial == null || heuristic == null)
+            throw new IllegalArgumentException("Null argument to constructor");
+        this.heuristic = heuristic;
+        solve(initial);
+    }
+
+    // find a solution to the initial board, throwing a CancellationException if
+    // the search is still running at deadline; heuristic may be null (see BatchSolver)
+    IDAStarSolver(Board initial, Heuristic heuristic, long deadline) {
+        if (initial == null) throw new IllegalArgumentException("Null argument to constructor");
+        this.heuristic = heuristic;
+        this.deadline = deadline;
+        solve(initial);
+    }
+
+    private void solve(Board initial) {
+        this.initial = initial;
+        this.n = initial.dimension();
+        this.tiles = new int[n * n];
+        for (int i = 0; i < n * n; i++) {
+            this.tiles[i] = initial.tileAt(i);
+            if (this.tiles[i] == 0) this.blank = i;
+        }
+
+        // depth-first search cannot detect that the goal is unreachable, so
+        // unsolvable boards have to be ruled out before searching
+        this.solvable = initial.isSolvable();
+        this.moves = -1;
+        if (!this.solvable) return;
+
+        // each iteration searches every path whose f = moves + estimate stays within
+        // the threshold, and the next threshold is the smallest f that was cut off
+        int estimate = heuristic == null ? initial.manhattan() : heuristic.estimate(tiles, n);
+        int threshold = estimate;
+        while (true) {
+            if (path == null || path.length <= threshold) path = new byte[threshold + 1];
+            int next = search(0, initial.manhattan(), estimate, threshold, -1);
+            if (next == FOUND) break;
+            threshold = next;
+        }
+    }
+
+    // returns FOUND if the goal was reached within threshold, otherwise the
+    // smallest f-value that exceeded threshold below this node
+    private int search(int depth, int manhattan, int estimate, int threshold, int previous) {
+        int f = depth + estimate;
+        if (f > threshold) return f;
+        if (Board.pastDeadline(deadline, ++visited))
+            throw new CancellationException("Search passed its deadline");
+        if (manhattan == 0) {
+            this.moves = depth;
+            return FOUND;
+        }
+
+        int min = Integer.MAX_VALUE;
+        for (int d = Board.UP; d <= Board.LEFT; d++) {
+            // never undo the move that led here
+            if (previous >= 0 && d == (previous ^ 2)) continue;
+            int from = Board.step(blank, n, d);
+            if (from < 0) continue;
+
+            // slide the tile at from into the blank, updating manhattan by its move
+            int tile = tiles[from], oldBlank = blank;
+            int next = manhattan - distance(tile, from) + distance(tile, oldBlank);
+            tiles[oldBlank] = tile;
+            tiles[from] = 0;
+            blank = from;
+            path[depth] = (byte) d;
+
+            int result = search(depth + 1, next,
+                                heuristic == null ? next : heuristic.estimate(tiles, n),
+                                threshold, d);
+
+            tiles[from] = tile;
+            tiles[oldBlank] = 0;
+            blank = oldBlank;
+
+            if (result == FOUND) return FOUND;
+            if (result < min) min = result;
+        }
+        return min;
+    }
+
+    // Manhattan distance between flat index i and the goal position of tile
+    private int distance(int tile, int i) {
+        return Math.abs((i / n) - ((tile - 1) / n)) + Math.abs((i % n) - ((tile - 1) % n));
+    }
+
+    // is the initial board solvable?
+    public boolean isSolvable() {
+        return this.solvable;
+    }
+
+    // min number of moves to solve initial board; -1 if unsolvable
+    public int moves() {
+        return this.moves;
+    }
+
+    // sequence of boards in a shortest solution; null if unsolvable
+    public Iterable<Board> solution() {
+        if (!isSolvable()) return null;
+        // boards are only created here, by replaying the recorded moves
+        Queue<Board> solutionSteps = new Queue<>();
+        Board step = initial;
+        solutionSteps.enqueue(step);
+        for (int i = 0; i < moves; i++) {
+            step = step.slide(path[i]);
+            solutionSteps.enqueue(step);
+        }
+        return solutionSteps;
+    }
+
+    // test client (see below) - an optional second argument names a pattern
+    // database file to guide the search, which is built there if missing
+    public static void main(String[] args) throws IOException {
+
+        // create initial board from file
+        In in = new In(args[0]);
+        int n = in.readInt();
+        int[][] tiles = new int[n][n];
+        for (int i = 0; i < n; i++)
+            for (int j = 0; j < n; j++)
+                tiles[i][j] = in.readInt();
+        Board initial = new Board(tiles);
+
+        // solve the puzzle
+        IDAStarSolver solver = args.length > 1
+                               ? new IDAStarSolver(initial,
+                                                   PatternDatabase.loadOrBuild(Paths.get(args[1]), n))
+                               : new IDAStarSolver(initial);
+
+        // print solution to standard output
+        if (!solver.isSolvable())
+            StdOut.println("No solution possible");
+        else {
+            StdOut.println("Minimum number of moves = " + solver.moves());
+            for (Board board : solver.solution())
+                StdOut.println(board);
+        }
+    }
+}
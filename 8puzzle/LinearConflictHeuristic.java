@@ -0,0 +1,58 @@
+public class LinearConflictHeuristic implements Heuristic {
+
+    // per-thread scratch space, so estimates allocate nothing once warmed up
+    private final ThreadLocal<int[]> scratch = ThreadLocal.withInitial(() -> new int[0]);
+
+    // Manhattan distance plus two moves for every tile that has to leave its
+    // goal row or column to let another tile in that line pass it
+    public int estimate(int[] tiles, int n) {
+        int[] line = scratch.get();
+        if (line.length < 2 * n) {
+            line = new int[2 * n];
+            scratch.set(line);
+        }
+
+        int manhattan = 0, tile;
+        for (int i = 0; i < n * n; i++) {
+            tile = tiles[i];
+            if (tile < 1) continue;
+            manhattan += Math.abs((i / n) - ((tile - 1) / n)) + Math.abs((i % n) - ((tile - 1) % n));
+        }
+
+        int conflicts = 0, count;
+        for (int r = 0; r < n; r++) {
+            // goal columns, in board order, of the tiles in row r that belong there
+            count = 0;
+            for (int c = 0; c < n; c++) {
+                tile = tiles[(r * n) + c];
+                if (tile > 0 && (tile - 1) / n == r) line[count++] = (tile - 1) % n;
+            }
+            conflicts += count - longestIncreasing(line, count, n);
+        }
+        for (int c = 0; c < n; c++) {
+            count = 0;
+            for (int r = 0; r < n; r++) {
+                tile = tiles[(r * n) + c];
+                if (tile > 0 && (tile - 1) % n == c) line[count++] = (tile - 1) / n;
+            }
+            conflicts += count - longestIncreasing(line, count, n);
+        }
+        return manhattan + 2 * conflicts;
+    }
+
+    // length of the longest increasing subsequence of line[0..count) - every tile
+    // outside it is in conflict with one that stays and must step out of the line
+    private static int longestIncreasing(int[] line, int count, int n) {
+        if (count < 2) return count;
+        int longest = 0;
+        for (int i = 0; i < count; i++) {
+            int best = 1;
+            for (int j = 0; j < i; j++) {
+                if (line[j] < line[i]) best = Math.max(best, line[n + j] + 1);
+            }
+            line[n + i] = best;
+            longest = Math.max(longest, best);
+        }
+        return longest;
+    }
+}
@@ -0,0 +1,346 @@
+import edu.princeton.cs.algs4.StdOut;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+
+// additive disjoint pattern database heuristic
+//
+// the tiles are split into disjoint patterns and, for each pattern, a table
+// records the fewest moves of that pattern's own tiles needed to bring them
+// home from every placement of them on the board. moves of the other tiles
+// are free, so each move of the real puzzle is counted by at most one table
+// and the sum over the patterns is still a lower bound
+public class PatternDatabase implements Heuristic {
+
+    private static final int MAGIC = 0x50444231;
+    private static final int UNVISITED = 0xFF;
+
+    // tables that have been loaded from disk, shared by every solver in the process
+    private static final HashMap<Path, PatternDatabase> LOADED = new HashMap<>();
+
+    private final int n;
+    private final int[][] patterns;
+    private final int[][] factors;
+    private final int[] offsets;
+    private final ByteBuffer table;
+
+    // for each tile, the pattern it belongs to (or -1) and its slot in that pattern
+    private final int[] patternOf;
+    private final int[] slotOf;
+
+    private final ThreadLocal<int[][]> scratch;
+
+    private PatternDatabase(int n, int[][] patterns, ByteBuffer table, int tableStart) {
+        this.n = n;
+        this.patterns = patterns;
+        this.factors = new int[patterns.length][];
+        this.offsets = new int[patterns.length];
+        this.patternOf = new int[n * n];
+        this.slotOf = new int[n * n];
+        this.table = table;
+        Arrays.fill(this.patternOf, -1);
+
+        int offset = tableStart;
+        for (int p = 0; p < patterns.length; p++) {
+            this.factors[p] = rankFactors(n * n, patterns[p].length);
+            this.offsets[p] = offset;
+            offset += tableSize(n * n, patterns[p].length);
+            for (int s = 0; s < patterns[p].length; s++) {
+                this.patternOf[patterns[p][s]] = p;
+                this.slotOf[patterns[p][s]] = s;
+            }
+        }
+
+        this.scratch = ThreadLocal.withInitial(() -> {
+            int[][] positions = new int[patterns.length][];
+            for (int p = 0; p < patterns.length; p++) positions[p] = new int[patterns[p].length];
+            return positions;
+        });
+    }
+
+    // build the tables for an n-by-n board by breadth-first search back from the goal
+    public static PatternDatabase build(int n, int[][] patterns) {
+        validate(n, patterns);
+        int total = 0;
+        for (int[] pattern : patterns) total += tableSize(n * n, pattern.length);
+
+        byte[] tables = new byte[total];
+        int offset = 0;
+        for (int[] pattern : patterns) {
+            int size = tableSize(n * n, pattern.length);
+            fill(n, pattern, tables, offset, size);
+            offset += size;
+        }
+        return new PatternDatabase(n, patterns, ByteBuffer.wrap(tables), 0);
+    }
+
+    // memory-map a database written by save(); each file is mapped once per process
+    public static PatternDatabase load(Path file) throws IOException {
+        Path key = file.toAbsolutePath().normalize();
+        synchronized (LOADED) {
+            PatternDatabase database = LOADED.get(key);
+            if (database != null) return database;
+
+            ByteBuffer buffer;
+            long size;
+            try (FileChannel channel = FileChannel.open(key, StandardOpenOption.READ)) {
+                size = channel.size();
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            }
+            if (size < 3 * Integer.BYTES || buffer.getInt() != MAGIC)
+                throw new IllegalArgumentException("Not a pattern database file: " + file);
+
+            // every table has at least one entry per cell, which bounds n and
+            // the pattern count before anything is allocated from them
+            int n = buffer.getInt();
+            int count = buffer.getInt();
+            long cells = (long) n * n;
+            if (n < 2 || cells > size || count < 1 || count >= cells || cells * count > size)
+                throw corrupt(file);
+            int[][] patterns = new int[count][];
+            for (int p = 0; p < patterns.length; p++) {
+                int length = buffer.remaining() < Integer.BYTES ? -1 : buffer.getInt();
+                if (length < 1 || length >= cells || buffer.remaining() < 4L * length)
+                    throw corrupt(file);
+                patterns[p] = new int[length];
+                for (int s = 0; s < length; s++) patterns[p][s] = buffer.getInt();
+            }
+            validate(n, patterns);
+
+            // the tables must fill the rest of the file exactly
+            long tables = 0;
+            for (int[] pattern : patterns) tables += tableSize(n * n, pattern.length);
+            if (buffer.remaining() != tables) throw corrupt(file);
+
+            database = new PatternDatabase(n, patterns, buffer, buffer.position());
+            LOADED.put(key, database);
+            return database;
+        }
+    }
+
+    private static IllegalArgumentException corrupt(Path file) {
+        return new IllegalArgumentException("Truncated or corrupt pattern database file: " + file);
+    }
+
+    // load the database in file, building and saving it first if it does not
+    // exist; a file built for another dimension is rejected
+    public static PatternDatabase loadOrBuild(Path file, int n) throws IOException {
+        if (!file.toFile().exists()) build(n, defaultPatterns(n)).save(file);
+        PatternDatabase database = load(file);
+        if (database.n != n)
+            throw new IllegalArgumentException("Database in " + file + " was built for dimension "
+                                                       + database.n + ", not " + n);
+        return database;
+    }
+
+    // write the header (magic, n, pattern count, each pattern's tiles) followed by
+    // one unsigned byte per placement of each pattern
+    public void save(Path file) throws IOException {
+        int headerSize = 3 * Integer.BYTES;
+        for (int[] pattern : patterns) headerSize += (pattern.length + 1) * Integer.BYTES;
+        ByteBuffer header = ByteBuffer.allocate(headerSize);
+        header.putInt(MAGIC).putInt(n).putInt(patterns.length);
+        for (int[] pattern : patterns) {
+            header.putInt(pattern.length);
+            for (int tile : pattern) header.putInt(tile);
+        }
+        header.flip();
+
+        ByteBuffer body = table.duplicate();
+        body.position(offsets[0]);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                                                    StandardOpenOption.WRITE,
+                                                    StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (header.hasRemaining()) channel.write(header);
+            while (body.hasRemaining()) channel.write(body);
+        }
+    }
+
+    // the usual partitions: 6-6-3 for the 15-puzzle, 4-4 for the 8-puzzle
+    public static int[][] defaultPatterns(int n) {
+        switch (n) {
+            case 2:
+                return new int[][] { { 1, 2, 3 } };
+            case 3:
+                return new int[][] { { 1, 2, 3, 4 }, { 5, 6, 7, 8 } };
+            case 4:
+                return new int[][] {
+                        { 1, 5, 6, 9, 10, 13 }, { 7, 8, 11, 12, 14, 15 }, { 2, 3, 4 }
+                };
+            default:
+                throw new IllegalArgumentException("No default patterns for dimension " + n);
+        }
+    }
+
+    public int estimate(int[] tiles, int n) {
+        if (n != this.n)
+            throw new IllegalArgumentException("Database was built for dimension " + this.n);
+        int[][] positions = scratch.get();
+        for (int i = 0; i < n * n; i++) {
+            int tile = tiles[i];
+            if (tile > 0 && patternOf[tile] >= 0) positions[patternOf[tile]][slotOf[tile]] = i;
+        }
+        int estimate = 0;
+        for (int p = 0; p < patterns.length; p++) {
+            estimate += table.get(offsets[p] + rank(positions[p], factors[p])) & 0xFF;
+        }
+        return estimate;
+    }
+
+    // breadth-first search back from the goal over (placement, blank cell) states,
+    // level by level: moving the blank onto a free cell is free, while sliding a
+    // pattern tile into the blank costs one move. a placement's entry is the
+    // cheapest of its states, so the table does not depend on where the blank is
+    private static void fill(int n, int[] pattern, byte[] tables, int offset, int size) {
+        int cells = n * n, k = pattern.length;
+        int[] factors = rankFactors(cells, k);
+        int[] positions = new int[k];
+        int[] slotAt = new int[cells];
+        int[] region = new int[cells];
+        boolean[] taken = new boolean[cells];
+        byte[] states = new byte[size * cells];
+
+        Arrays.fill(states, (byte) UNVISITED);
+        Arrays.fill(slotAt, -1);
+        for (int s = 0; s < k; s++) positions[s] = pattern[s] - 1;
+        for (int s = 0; s < k; s++) slotAt[positions[s]] = s;
+        flood(n, rank(positions, factors), cells - 1, 0, slotAt, states, region);
+        for (int s = 0; s < k; s++) slotAt[positions[s]] = -1;
+
+        boolean reached = true;
+        for (int depth = 0; reached; depth++) {
+            reached = false;
+            for (int r = 0; r < size; r++) {
+                int base = r * cells;
+                boolean atDepth = false;
+                for (int b = 0; b < cells && !atDepth; b++) {
+                    atDepth = (states[base + b] & 0xFF) == depth;
+                }
+                if (!atDepth) continue;
+
+                unrank(r, positions, factors, cells, taken);
+                for (int s = 0; s < k; s++) slotAt[positions[s]] = s;
+
+                for (int b = 0; b < cells; b++) {
+                    if ((states[base + b] & 0xFF) != depth) continue;
+                    for (int d = Board.UP; d <= Board.LEFT; d++) {
+                        int from = Board.step(b, n, d);
+                        if (from < 0 || slotAt[from] < 0) continue;
+
+                        // the pattern tile at from slides into the blank at b
+                        int s = slotAt[from];
+                        positions[s] = b;
+                        slotAt[b] = s;
+                        slotAt[from] = -1;
+                        int next = rank(positions, factors);
+                        if ((states[(next * cells) + from] & 0xFF) == UNVISITED) {
+                            flood(n, next, from, depth + 1, slotAt, states, region);
+                            reached = true;
+                        }
+                        slotAt[from] = s;
+                        slotAt[b] = -1;
+                        positions[s] = from;
+                    }
+                }
+                for (int s = 0; s < k; s++) slotAt[positions[s]] = -1;
+            }
+        }
+
+        for (int r = 0; r < size; r++) {
+            int min = UNVISITED;
+            for (int b = 0; b < cells; b++) min = Math.min(min, states[(r * cells) + b] & 0xFF);
+            tables[offset + r] = (byte) min;
+        }
+    }
+
+    // give every state of placement r whose blank can reach blank without moving
+    // a pattern tile the given depth, unless it already has one
+    private static void flood(int n, int r, int blank, int depth, int[] slotAt, byte[] states,
+                              int[] region) {
+        int cells = n * n, base = r * cells, top = 0;
+        states[base + blank] = (byte) depth;
+        region[top++] = blank;
+        while (top > 0) {
+            int cell = region[--top];
+            for (int d = Board.UP; d <= Board.LEFT; d++) {
+                int next = Board.step(cell, n, d);
+                if (next < 0 || slotAt[next] >= 0) continue;
+                if ((states[base + next] & 0xFF) != UNVISITED) continue;
+                states[base + next] = (byte) depth;
+                region[top++] = next;
+            }
+        }
+    }
+
+    // number of ordered placements of k distinct tiles on cells cells
+    private static int tableSize(int cells, int k) {
+        long size = 1;
+        for (int i = 0; i < k; i++) size *= cells - i;
+        if (size > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Pattern of " + k + " tiles is too large");
+        return (int) size;
+    }
+
+    // factors[s] is the number of placements of the tiles after slot s
+    private static int[] rankFactors(int cells, int k) {
+        int[] factors = new int[k];
+        for (int s = 0; s < k; s++) factors[s] = tableSize(cells - s - 1, k - s - 1);
+        return factors;
+    }
+
+    // mixed-radix index of a placement, where the digit of slot s is its cell
+    // counted among the cells not taken by the slots before it
+    private static int rank(int[] positions, int[] factors) {
+        int rank = 0;
+        for (int s = 0; s < positions.length; s++) {
+            int digit = positions[s];
+            for (int t = 0; t < s; t++) {
+                if (positions[t] < positions[s]) digit--;
+            }
+            rank += digit * factors[s];
+        }
+        return rank;
+    }
+
+    private static void unrank(int rank, int[] positions, int[] factors, int cells,
+                               boolean[] taken) {
+        for (int s = 0; s < positions.length; s++) {
+            int digit = (rank / factors[s]) % (cells - s);
+            int cell = 0;
+            while (taken[cell] || digit > 0) {
+                if (!taken[cell]) digit--;
+                cell++;
+            }
+            positions[s] = cell;
+            taken[cell] = true;
+        }
+        for (int position : positions) taken[position] = false;
+    }
+
+    private static void validate(int n, int[][] patterns) {
+        boolean[] seen = new boolean[n * n];
+        for (int[] pattern : patterns) {
+            if (pattern.length == 0)
+                throw new IllegalArgumentException("Patterns must not be empty");
+            for (int tile : pattern) {
+                if (tile < 1 || tile >= n * n || seen[tile])
+                    throw new IllegalArgumentException("Patterns must hold distinct tiles");
+                seen[tile] = true;
+            }
+        }
+    }
+
+    // builds the default database for dimension args[0] and writes it to args[1]
+    public static void main(String[] args) throws IOException {
+        int n = Integer.parseInt(args[0]);
+        Path file = Paths.get(args[1]);
+        build(n, defaultPatterns(n)).save(file);
+        StdOut.println("Wrote pattern database for n = " + n + " to " + file);
+    }
+}
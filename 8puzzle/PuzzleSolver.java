@@ -0,0 +1,13 @@
+// the public API shared by the 8puzzle search engines, so that a caller can
+// pick the engine that suits a board without changing how it reads results
+public interface PuzzleSolver {
+
+    // is the initial board solvable?
+    boolean isSolvable();
+
+    // min number of moves to solve initial board; -1 if unsolvable
+    int moves();
+
+    // sequence of boards in a shortest solution; null if unsolvable
+    Iterable<Board> solution();
+}
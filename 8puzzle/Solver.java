@@ -5,62 +5,127 @@
  **************************************************************************** */
 
 import edu.princeton.cs.algs4.In;
-import edu.princeton.cs.algs4.MinPQ;
-import edu.princeton.cs.algs4.Stack;
 import edu.princeton.cs.algs4.StdOut;
 
-public class Solver {
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CancellationException;
 
+public class Solver implements PuzzleSolver {
 
-    private SearchNode solvedNode;
+
+    private Board initial;
     private boolean solvable;
+    private int moves;
+    // the direction the blank moves in at each step of the solution, which is
+    // all that is kept of the search once it finishes
+    private byte[] path;
 
-    // find a solution to the initial board (using the A* algorithm)
-    public Solver(Board initial) {
-        if (initial == null) throw new IllegalArgumentException("Null argument to constructor");
-        Board twin = initial.twin();
+    // estimates the moves left from each board; null means Board.manhattan(),
+    // which the boards keep up to date themselves
+    private Heuristic heuristic;
+    private int[] tiles;
 
-        MinPQ<SearchNode> searchQueue = new MinPQ<>();
-        MinPQ<SearchNode> twinQueue = new MinPQ<>();
+    // System.nanoTime() at which the search gives up; 0 for no limit
+    private long deadline;
 
-        SearchNode initialNode = new SearchNode(null, initial, 0);
-        searchQueue.insert(initialNode);
+    // estimate() times one call in this many when there is no listener (a power of 2)
+    private static final int TIMING_SAMPLE = 64;
 
-        SearchNode twinNode = new SearchNode(null, twin, 0);
-        twinQueue.insert(twinNode);
+    private SolverStats stats = new SolverStats();
+    private long estimates;
+    private SolverListener listener;
+    private int interval;
 
-        SearchNode min, twinMin;
-        Iterable<Board> minNeighbors, twinMinNeighbors;
+    // find a solution to the initial board (using the A* algorithm)
+    public Solver(Board initial) {
+        if (initial == null) throw new IllegalArgumentException("Null argument to constructor");
+        solve(initial);
+    }
 
-        while (!(searchQueue.min().getManhattan() == 0 || twinQueue.min().getManhattan() == 0)) {
-            min = searchQueue.min();
-            twinMin = twinQueue.min();
+    // find a solution to the initial board, guided by the given heuristic
+    public Solver(Board initial, Heuristic heuristic) {
+        if (initial == null || heuristic == null)
+            throw new IllegalArgumentException("Null argument to constructor");
+        this.heuristic = heuristic;
+        this.tiles = new int[initial.dimension() * initial.dimension()];
+        solve(initial);
+    }
 
-            searchQueue.delMin();
-            twinQueue.delMin();
+    // find a solution to the initial board, guided by heuristic (or Board.manhattan()
+    // if it is null), and report the counts so far to listener every interval expansions
+    public Solver(Board initial, Heuristic heuristic, SolverListener listener, int interval) {
+        if (initial == null || listener == null)
+            throw new IllegalArgumentException("Null argument to constructor");
+        if (interval <= 0) throw new IllegalArgumentException("Interval must be positive");
+        if (heuristic != null) {
+            this.heuristic = heuristic;
+            this.tiles = new int[initial.dimension() * initial.dimension()];
+        }
+        this.listener = listener;
+        this.interval = interval;
+        solve(initial);
+    }
 
-            minNeighbors = min.board.neighbors();
-            twinMinNeighbors = twinMin.board.neighbors();
+    // find a solution to the initial board, throwing a CancellationException if
+    // the search is still running at deadline; heuristic may be null (see BatchSolver)
+    Solver(Board initial, Heuristic heuristic, long deadline) {
+        if (initial == null) throw new IllegalArgumentException("Null argument to constructor");
+        if (heuristic != null) {
+            this.heuristic = heuristic;
+            this.tiles = new int[initial.dimension() * initial.dimension()];
+        }
+        this.deadline = deadline;
+        solve(initial);
+    }
 
-            for (Board minNeighbor : minNeighbors) {
-                if (min.previous != null && minNeighbor.equals(min.previous.board)) continue;
-                searchQueue.insert(new SearchNode(min, minNeighbor, min.moves + 1));
-            }
+    private void solve(Board initial) {
+        this.initial = initial;
+        this.moves = -1;
+        stats.start();
 
-            for (Board twinMinNeighbor : twinMinNeighbors) {
-                if (twinMin.previous != null && twinMinNeighbor.equals(twinMin.previous.board))
-                    continue;
-                twinQueue.insert(new SearchNode(twinMin, twinMinNeighbor, twinMin.moves + 1));
-            }
+        // boards split into two classes by permutation parity and only the class
+        // containing the goal is solvable, so one O(n^2) check replaces searching
+        this.solvable = initial.isSolvable();
+        if (!this.solvable) {
+            stats.finish();
+            return;
+        }
+
+        Search search = new Search(initial);
+        long expanded = 0;
+        while (!search.isSolved()) {
+            search.expand();
+            expanded++;
+            if (listener != null && expanded % interval == 0) listener.progress(stats);
+            if (Board.pastDeadline(deadline, expanded))
+                throw new CancellationException("Search passed its deadline");
         }
+        this.moves = search.queue.minG();
+        this.path = search.path(search.queue.min(), this.moves);
+        stats.finish();
+    }
 
-        if (searchQueue.min().getManhattan() == 0) {
-            this.solvedNode = searchQueue.min();
-            this.solvable = true;
+    // reading the clock costs about as much as a Manhattan estimate, so unless a
+    // listener is watching only one call in TIMING_SAMPLE is timed, and its time
+    // is counted for all of them
+    private int estimate(Board board) {
+        boolean timed = listener != null || (estimates++ & (TIMING_SAMPLE - 1)) == 0;
+        long start = timed ? System.nanoTime() : 0;
+        int estimate;
+        if (heuristic == null) {
+            estimate = board.manhattan();
         }
         else {
-            this.solvable = false;
+            int n = board.dimension();
+            for (int i = 0; i < n * n; i++) tiles[i] = board.tileAt(i);
+            estimate = heuristic.estimate(tiles, n);
         }
+        if (timed) {
+            long nanos = System.nanoTime() - start;
+            stats.estimated(listener != null ? nanos : nanos * TIMING_SAMPLE);
+        }
+        return estimate;
     }
 
     // is the initial board solvable? (see below)
@@ -70,19 +135,19 @@ public class Solver {
 
     // min number of moves to solve initial board; -1 if unsolvable
     public int moves() {
-        return isSolvable() ? solvedNode.moves : -1;
+        return this.moves;
     }
 
-    // sequence of boards in a shortest solution; null if unsolvable
+    // sequence of boards in a shortest solution; null if unsolvable - each board
+    // is made from the one before it as the sequence is iterated
     public Iterable<Board> solution() {
         if (!isSolvable()) return null;
-        Stack<Board> solutionSteps = new Stack<>();
-        SearchNode step = solvedNode;
-        while (step != null) {
-            solutionSteps.push(step.board);
-            step = step.previous;
-        }
-        return solutionSteps;
+        return SolutionIterator::new;
+    }
+
+    // how much work the search did
+    public SolverStats stats() {
+        return this.stats;
     }
 
     // test client (see below)
@@ -110,28 +175,85 @@ public class Solver {
         }
     }
 
-    private class SearchNode implements Comparable<SearchNode> {
-        private SearchNode previous;
-        private Board board;
-        private int manhattan;
-        private int moves;
-        private int priority;
-
-        public SearchNode(SearchNode previous, Board board, int moves) {
-            this.previous = previous;
-            this.board = board;
-            this.manhattan = board.manhattan();
-            this.moves = moves;
-            this.priority = this.manhattan + board.hamming() + this.moves;
+    private class Search {
+        // priorities are small integers, so the open list is an array of
+        // buckets rather than a binary heap
+        private BucketQueue<Board> queue;
+        // the fewest moves found to every board that has been queued, how the
+        // blank moved to get there and whether the board has been expanded.
+        // a board is queued again whenever a strictly shorter path reaches it,
+        // even after it has been expanded: a heuristic such as a pattern
+        // database can be admissible without being consistent, and then the
+        // first path to expand a board need not be the shortest
+        private StateTable states;
+
+        public Search(Board initial) {
+            this.queue = new BucketQueue<>();
+            this.states = new StateTable(initial);
+            this.states.put(initial, 0, -1);
+            this.queue.insert(initial, estimate(initial), 0);
         }
 
-        public int getManhattan() {
-            return this.manhattan;
+        // the goal has been found once it is the next board to be expanded
+        public boolean isSolved() {
+            discardStale();
+            return !queue.isEmpty() && queue.min().isGoal();
         }
 
-        public int compareTo(SearchNode that) {
-            return Integer.compare(this.priority, that.priority);
+        public void expand() {
+            int moves = queue.minG() + 1;
+            stats.expanded(queue.size());
+            Board min = queue.delMin();
+            states.close(min);
+            for (int d = Board.UP; d <= Board.LEFT; d++) {
+                Board neighbor = min.slide(d);
+                if (neighbor == null) continue;
+                int best = states.moves(neighbor);
+                boolean duplicate = best >= 0 && best <= moves;
+                stats.generated(duplicate);
+                if (duplicate) continue;
+                states.put(neighbor, moves, d);
+                queue.insert(neighbor, estimate(neighbor) + moves, moves);
+            }
+            stats.queued(queue.size());
+        }
+
+        // the blank's direction at each of the moves steps from the initial
+        // board to board, read back through the parent directions in the table
+        public byte[] path(Board board, int moves) {
+            byte[] path = new byte[moves];
+            for (int i = moves - 1; i >= 0; i--) {
+                int d = states.parent(board);
+                path[i] = (byte) d;
+                board = board.slide(d ^ 2);
+            }
+            return path;
+        }
+
+        // drop queued boards that were expanded, or queued again with fewer moves,
+        // after this entry was added (put() reopens a closed board it shortens)
+        private void discardStale() {
+            while (!queue.isEmpty()) {
+                Board min = queue.min();
+                if (!states.isClosed(min) && states.moves(min) == queue.minG()) return;
+                queue.delMin();
+            }
         }
     }
-}
 
+    private class SolutionIterator implements Iterator<Board> {
+        private Board next = initial;
+        private int step = 0;
+
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        public Board next() {
+            if (!hasNext()) throw new NoSuchElementException("No more boards in the solution");
+            Board current = next;
+            next = step < moves ? current.slide(path[step++]) : null;
+            return current;
+        }
+    }
+}
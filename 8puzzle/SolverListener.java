@@ -0,0 +1,7 @@
+// receives the running counts of a Solver while it searches, e.g. to export
+// them to a metrics system
+public interface SolverListener {
+
+    // called every interval expansions with the counts so far
+    void progress(SolverStats stats);
+}
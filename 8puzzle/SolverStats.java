@@ -0,0 +1,78 @@
+// how much work a Solver did: the counts are updated as the search runs, so a
+// SolverListener sees them part way through and Solver.stats() the final values
+public class SolverStats {
+
+    private long expanded;
+    private long generated;
+    private long duplicates;
+    private int maxQueueSize;
+    private long heuristicNanos;
+    private long startNanos;
+    private long elapsedNanos;
+
+    // boards taken off the open list and expanded
+    public long expanded() {
+        return expanded;
+    }
+
+    // neighbors made while expanding boards
+    public long generated() {
+        return generated;
+    }
+
+    // neighbors dropped because they had been expanded, or queued with no more
+    // moves, already
+    public long duplicates() {
+        return duplicates;
+    }
+
+    // most boards on the open list at once
+    public int maxQueueSize() {
+        return maxQueueSize;
+    }
+
+    // time spent estimating moves left, in nanoseconds; exact when a listener
+    // is attached, and otherwise estimated from a sample of the calls
+    public long heuristicNanos() {
+        return heuristicNanos;
+    }
+
+    // time from the start of the search until it finished, or until now
+    // if it is still running, in nanoseconds
+    public long elapsedNanos() {
+        return elapsedNanos > 0 ? elapsedNanos : System.nanoTime() - startNanos;
+    }
+
+    public String toString() {
+        return String.format("expanded = %d, generated = %d, duplicates = %d, max queue = %d, "
+                                     + "heuristic = %.1f ms, elapsed = %.1f ms",
+                             expanded, generated, duplicates, maxQueueSize,
+                             heuristicNanos / 1e6, elapsedNanos() / 1e6);
+    }
+
+    void start() {
+        startNanos = System.nanoTime();
+    }
+
+    void finish() {
+        elapsedNanos = Math.max(1, System.nanoTime() - startNanos);
+    }
+
+    void expanded(int queueSize) {
+        expanded++;
+        if (queueSize > maxQueueSize) maxQueueSize = queueSize;
+    }
+
+    void generated(boolean duplicate) {
+        generated++;
+        if (duplicate) duplicates++;
+    }
+
+    void queued(int queueSize) {
+        if (queueSize > maxQueueSize) maxQueueSize = queueSize;
+    }
+
+    void estimated(long nanos) {
+        heuristicNanos += nanos;
+    }
+}
@@ -0,0 +1,120 @@
+// an open-addressing hash table from boards to what a search knows about them:
+// the fewest moves found to the board, the direction the blank moved in to
+// get there, and whether the board has been expanded. boards up to 4-by-4 are
+// keyed by their packed long, so the table holds no Board objects for them and
+// costs a long, an int and a byte per slot
+public class StateTable {
+
+    private static final int INITIAL_CAPACITY = 1 << 10;
+
+    // info bytes: 0 marks an empty slot, otherwise the low bits hold the
+    // parent direction + 2 (so -1, for the start board, is 1) and one bit
+    // marks boards that have been expanded
+    private static final int PARENT_MASK = 0x7;
+    private static final int CLOSED = 0x8;
+
+    private boolean packed;
+    private long[] keys;
+    private Board[] boards;
+    private int[] moves;
+    private byte[] info;
+    private int size;
+
+    // create an empty table for boards of the same dimension as board
+    public StateTable(Board board) {
+        this.packed = board.isPacked();
+        allocate(INITIAL_CAPACITY);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // fewest moves recorded for board; -1 if it has not been recorded
+    public int moves(Board board) {
+        int slot = find(board);
+        return info[slot] == 0 ? -1 : moves[slot];
+    }
+
+    // direction the blank moved in to reach board by its recorded path; -1 for
+    // the start board (the previous board is board.slide(parent ^ 2))
+    public int parent(Board board) {
+        int slot = find(board);
+        if (info[slot] == 0) throw new IllegalArgumentException("Board is not in the table");
+        return (info[slot] & PARENT_MASK) - 2;
+    }
+
+    public boolean isClosed(Board board) {
+        return (info[find(board)] & CLOSED) != 0;
+    }
+
+    // record a path of the given length to board, reached by moving the blank in
+    // direction parent; the board is open until close() is called for it
+    public void put(Board board, int length, int parent) {
+        int slot = find(board);
+        if (info[slot] == 0) {
+            if (2 * (size + 1) > info.length) {
+                resize(2 * info.length);
+                slot = find(board);
+            }
+            if (packed) keys[slot] = board.packedTiles();
+            else boards[slot] = board;
+            size++;
+        }
+        moves[slot] = length;
+        info[slot] = (byte) (parent + 2);
+    }
+
+    public void close(Board board) {
+        int slot = find(board);
+        if (info[slot] == 0) throw new IllegalArgumentException("Board is not in the table");
+        info[slot] |= CLOSED;
+    }
+
+    // the slot holding board, or the empty slot where it would go
+    private int find(Board board) {
+        int mask = info.length - 1;
+        if (packed) {
+            long key = board.packedTiles();
+            int slot = hash(key) & mask;
+            while (info[slot] != 0 && keys[slot] != key) slot = (slot + 1) & mask;
+            return slot;
+        }
+        int slot = board.hashCode() & mask;
+        while (info[slot] != 0 && !boards[slot].equals(board)) slot = (slot + 1) & mask;
+        return slot;
+    }
+
+    private void allocate(int capacity) {
+        if (packed) this.keys = new long[capacity];
+        else this.boards = new Board[capacity];
+        this.moves = new int[capacity];
+        this.info = new byte[capacity];
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        Board[] oldBoards = boards;
+        int[] oldMoves = moves;
+        byte[] oldInfo = info;
+        allocate(capacity);
+
+        int mask = capacity - 1;
+        for (int i = 0; i < oldInfo.length; i++) {
+            if (oldInfo[i] == 0) continue;
+            int slot = (packed ? hash(oldKeys[i]) : oldBoards[i].hashCode()) & mask;
+            while (info[slot] != 0) slot = (slot + 1) & mask;
+            if (packed) keys[slot] = oldKeys[i];
+            else boards[slot] = oldBoards[i];
+            moves[slot] = oldMoves[i];
+            info[slot] = oldInfo[i];
+        }
+    }
+
+    // spread the few bits that differ between nearby boards over the whole hash
+    private static int hash(long packedTiles) {
+        long h = packedTiles * 0x9E3779B97F4A7C15L;
+        h ^= h >>> 32;
+        return (int) h;
+    }
+}
@@ -0,0 +1,325 @@
+import edu.princeton.cs.algs4.Point2D;
+import edu.princeton.cs.algs4.Queue;
+import edu.princeton.cs.algs4.RectHV;
+import edu.princeton.cs.algs4.StdOut;
+import edu.princeton.cs.algs4.StdRandom;
+
+import java.util.Arrays;
+
+// a static kd-tree with no nodes: the points are kept in two coordinate
+// arrays, ordered so that the subtree of points [lo, hi) has its splitting
+// point at mid = (lo + hi) / 2, the points left of (or below) it in [lo, mid)
+// and the rest in [mid + 1, hi). a tree costs 16 bytes per point, and the
+// region each subtree covers is worked out on the way down instead of being
+// stored. points with the same key as a split may lie on either side of it,
+// so searches treat both sides' regions as including the splitting line.
+// like KdTree it is a set: a point given more than once is kept only once
+public class ArrayKdTree {
+
+    private static final int VERTICAL = 0;
+
+    private double[] xs;
+    private double[] ys;
+
+    public ArrayKdTree(double[] xs, double[] ys)  // construct the set of points (xs[i], ys[i])
+    {
+        if (xs == null || ys == null) throw new IllegalArgumentException("Cannot insert null points");
+        if (xs.length != ys.length)
+            throw new IllegalArgumentException("Need the same number of x and y coordinates");
+        // coordinates are checked, and -0.0 is stored as 0.0, as Point2D does,
+        // so that both trees accept the same points and -0.0 and 0.0 are one
+        this.xs = new double[xs.length];
+        this.ys = new double[ys.length];
+        for (int i = 0; i < xs.length; i++) {
+            if (Double.isInfinite(xs[i]) || Double.isInfinite(ys[i]))
+                throw new IllegalArgumentException("Coordinates must be finite");
+            if (Double.isNaN(xs[i]) || Double.isNaN(ys[i]))
+                throw new IllegalArgumentException("Coordinates cannot be NaN");
+            this.xs[i] = xs[i] + 0.0;
+            this.ys[i] = ys[i] + 0.0;
+        }
+        removeDuplicates();
+        build(0, this.xs.length, 0);
+    }
+
+    public ArrayKdTree(Point2D[] points)          // construct the set of the given points
+    {
+        if (points == null) throw new IllegalArgumentException("Cannot insert null points");
+        this.xs = new double[points.length];
+        this.ys = new double[points.length];
+        for (int i = 0; i < points.length; i++) {
+            if (points[i] == null) throw new IllegalArgumentException("Cannot insert null point");
+            xs[i] = points[i].x();
+            ys[i] = points[i].y();
+        }
+        removeDuplicates();
+        build(0, xs.length, 0);
+    }
+
+    public boolean isEmpty()                      // is the set empty?
+    {
+        return size() == 0;
+    }
+
+    public int size()                         // number of points in the set
+    {
+        return xs.length;
+    }
+
+    // coordinates of the point at index i, as returned by nearestIndex()
+    public double x(int i) {
+        return xs[i];
+    }
+
+    public double y(int i) {
+        return ys[i];
+    }
+
+    public boolean contains(Point2D p)            // does the set contain point p?
+    {
+        if (p == null) throw new IllegalArgumentException("Cannot check null point");
+        return contains(0, xs.length, 0, p.x(), p.y());
+    }
+
+    private boolean contains(int lo, int hi, int depth, double x, double y) {
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (Double.compare(xs[mid], x) == 0 && Double.compare(ys[mid], y) == 0) return true;
+            int cmp = depth % 2 == VERTICAL ? Double.compare(x, xs[mid]) : Double.compare(y, ys[mid]);
+            // an equal key may be on either side
+            if (cmp == 0 && contains(lo, mid, depth + 1, x, y)) return true;
+            if (cmp < 0) hi = mid;
+            else lo = mid + 1;
+            depth++;
+        }
+        return false;
+    }
+
+    public Iterable<Point2D> range(
+            RectHV rect)             // all points that are inside the rectangle (or on the boundary)
+    {
+        if (rect == null) throw new IllegalArgumentException("Cannot check null rectangle");
+        Queue<Point2D> pointsInRange = new Queue<>();
+        range(0, xs.length, 0, rect, pointsInRange);
+        return pointsInRange;
+    }
+
+    private void range(int lo, int hi, int depth, RectHV rect, Queue<Point2D> pointsInRange) {
+        if (lo >= hi) return;
+        int mid = (lo + hi) >>> 1;
+        double x = xs[mid], y = ys[mid];
+        if (x >= rect.xmin() && x <= rect.xmax() && y >= rect.ymin() && y <= rect.ymax())
+            pointsInRange.enqueue(new Point2D(x, y));
+
+        double split = depth % 2 == VERTICAL ? x : y;
+        double min = depth % 2 == VERTICAL ? rect.xmin() : rect.ymin();
+        double max = depth % 2 == VERTICAL ? rect.xmax() : rect.ymax();
+        if (min <= split) range(lo, mid, depth + 1, rect, pointsInRange);
+        if (max >= split) range(mid + 1, hi, depth + 1, rect, pointsInRange);
+    }
+
+    public Point2D nearest(
+            Point2D p)             // a nearest neighbor in the set to point p; null if the set is empty
+    {
+        if (p == null) throw new IllegalArgumentException("Cannot check null point");
+        int nearest = nearestIndex(p.x(), p.y());
+        return nearest < 0 ? null : new Point2D(xs[nearest], ys[nearest]);
+    }
+
+    // the index of a point nearest to (x, y); -1 if the set is empty
+    public int nearestIndex(double x, double y) {
+        if (xs.length == 0) return -1;
+        return nearest(0, xs.length, 0, x, y, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY,
+                       Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, -1,
+                       Double.POSITIVE_INFINITY);
+    }
+
+    // the index of the nearest point to (x, y) among best and the points in
+    // [lo, hi), which cover the given region; minDistSquared is best's squared
+    // distance. the recursion is only as deep as the tree, which is about lg n
+    private int nearest(int lo, int hi, int depth, double x, double y, double xmin, double ymin,
+                        double xmax, double ymax, int best, double minDistSquared) {
+        if (lo >= hi) return best;
+        // no point in this region can be closer than best
+        double dx = x < xmin ? xmin - x : (x > xmax ? x - xmax : 0);
+        double dy = y < ymin ? ymin - y : (y > ymax ? y - ymax : 0);
+        if (dx * dx + dy * dy >= minDistSquared) return best;
+
+        int mid = (lo + hi) >>> 1;
+        dx = xs[mid] - x;
+        dy = ys[mid] - y;
+        if (dx * dx + dy * dy < minDistSquared) {
+            best = mid;
+            minDistSquared = dx * dx + dy * dy;
+        }
+
+        // search the side holding (x, y) first, so that it tightens the bound
+        // before the far side is looked at
+        if (depth % 2 == VERTICAL) {
+            double split = xs[mid];
+            if (x < split) {
+                best = nearest(lo, mid, depth + 1, x, y, xmin, ymin, split, ymax, best, minDistSquared);
+                best = nearest(mid + 1, hi, depth + 1, x, y, split, ymin, xmax, ymax, best,
+                               distanceSquared(best, x, y));
+            }
+            else {
+                best = nearest(mid + 1, hi, depth + 1, x, y, split, ymin, xmax, ymax, best,
+                               minDistSquared);
+                best = nearest(lo, mid, depth + 1, x, y, xmin, ymin, split, ymax, best,
+                               distanceSquared(best, x, y));
+            }
+        }
+        else {
+            double split = ys[mid];
+            if (y < split) {
+                best = nearest(lo, mid, depth + 1, x, y, xmin, ymin, xmax, split, best, minDistSquared);
+                best = nearest(mid + 1, hi, depth + 1, x, y, xmin, split, xmax, ymax, best,
+                               distanceSquared(best, x, y));
+            }
+            else {
+                best = nearest(mid + 1, hi, depth + 1, x, y, xmin, split, xmax, ymax, best,
+                               minDistSquared);
+                best = nearest(lo, mid, depth + 1, x, y, xmin, ymin, xmax, split, best,
+                               distanceSquared(best, x, y));
+            }
+        }
+        return best;
+    }
+
+    private double distanceSquared(int i, double x, double y) {
+        double dx = xs[i] - x, dy = ys[i] - y;
+        return dx * dx + dy * dy;
+    }
+
+    // sorting by x, then y, brings equal points together, so a single pass
+    // keeps one of each; the arrays are then trimmed to the distinct points
+    private void removeDuplicates() {
+        sort(0, xs.length);
+        int distinct = 0;
+        for (int i = 0; i < xs.length; i++) {
+            if (distinct > 0 && Double.compare(xs[i], xs[distinct - 1]) == 0
+                    && Double.compare(ys[i], ys[distinct - 1]) == 0) continue;
+            xs[distinct] = xs[i];
+            ys[distinct++] = ys[i];
+        }
+        if (distinct < xs.length) {
+            xs = Arrays.copyOf(xs, distinct);
+            ys = Arrays.copyOf(ys, distinct);
+        }
+    }
+
+    // 3-way quicksort of [lo, hi) by x, then y; it recurses on the smaller
+    // side only, so the stack stays within lg n frames
+    private void sort(int lo, int hi) {
+        while (hi - lo > 1) {
+            int pivot = median(lo, lo + (hi - lo) / 2, hi - 1);
+            double px = xs[pivot], py = ys[pivot];
+
+            int lt = lo, i = lo, gt = hi - 1;
+            while (i <= gt) {
+                int cmp = Double.compare(xs[i], px);
+                if (cmp == 0) cmp = Double.compare(ys[i], py);
+                if (cmp < 0) swap(lt++, i++);
+                else if (cmp > 0) swap(i, gt--);
+                else i++;
+            }
+            if (lt - lo < hi - gt - 1) {
+                sort(lo, lt);
+                lo = gt + 1;
+            }
+            else {
+                sort(gt + 1, hi);
+                hi = lt;
+            }
+        }
+    }
+
+    private int median(int a, int b, int c) {
+        if (compare(a, b) < 0) return compare(b, c) < 0 ? b : (compare(a, c) < 0 ? c : a);
+        return compare(a, c) < 0 ? a : (compare(b, c) < 0 ? c : b);
+    }
+
+    private int compare(int i, int j) {
+        int cmp = Double.compare(xs[i], xs[j]);
+        return cmp != 0 ? cmp : Double.compare(ys[i], ys[j]);
+    }
+
+    // order [lo, hi) so that the point at mid is the median by the key of depth,
+    // with no greater keys before it and no smaller keys after it, then do the
+    // same for both halves on the other key
+    private void build(int lo, int hi, int depth) {
+        while (hi - lo > 1) {
+            int mid = (lo + hi) >>> 1;
+            select(lo, hi, mid, depth % 2 == VERTICAL ? xs : ys);
+            build(lo, mid, depth + 1);
+            lo = mid + 1;
+            depth++;
+        }
+    }
+
+    // quickselect on keys, moving the other coordinate along with each key
+    private void select(int lo, int hi, int k, double[] keys) {
+        while (hi - lo > 1) {
+            // median of three as the pivot, which keeps sorted input linear
+            int mid = lo + (hi - lo) / 2;
+            double a = keys[lo], b = keys[mid], c = keys[hi - 1];
+            double pivot = a < b ? (b < c ? b : (a < c ? c : a)) : (a < c ? a : (b < c ? c : b));
+
+            // Dijkstra's 3-way partition, which is linear however many keys are equal
+            int lt = lo, i = lo, gt = hi - 1;
+            while (i <= gt) {
+                int cmp = Double.compare(keys[i], pivot);
+                if (cmp < 0) swap(lt++, i++);
+                else if (cmp > 0) swap(i, gt--);
+                else i++;
+            }
+            if (k < lt) hi = lt;
+            else if (k > gt) lo = gt + 1;
+            else return;
+        }
+    }
+
+    private void swap(int i, int j) {
+        double x = xs[i];
+        xs[i] = xs[j];
+        xs[j] = x;
+        double y = ys[i];
+        ys[i] = ys[j];
+        ys[j] = y;
+    }
+
+    public static void main(
+            String[] args)                  // unit testing of the methods (optional)
+    {
+        // times nearest queries on an ArrayKdTree and a bulk-loaded KdTree of
+        // args[0] random points (default 1000000) for args[1] random queries
+        // (default 1000000), checking that they agree
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+        int queries = args.length > 1 ? Integer.parseInt(args[1]) : 1000000;
+        double[] xs = new double[n], ys = new double[n];
+        for (int i = 0; i < n; i++) {
+            xs[i] = StdRandom.uniformDouble();
+            ys[i] = StdRandom.uniformDouble();
+        }
+        ArrayKdTree arrayKdTree = new ArrayKdTree(xs, ys);
+        KdTree kdTree = new KdTree(xs, ys);
+        Point2D[] targets = new Point2D[queries];
+        for (int i = 0; i < queries; i++)
+            targets[i] = new Point2D(StdRandom.uniformDouble(), StdRandom.uniformDouble());
+
+        long start = System.nanoTime();
+        for (Point2D target : targets) arrayKdTree.nearestIndex(target.x(), target.y());
+        double arrayNanos = (double) (System.nanoTime() - start) / queries;
+        start = System.nanoTime();
+        for (Point2D target : targets) kdTree.nearest(target);
+        double kdTreeNanos = (double) (System.nanoTime() - start) / queries;
+
+        for (Point2D target : targets) {
+            if (arrayKdTree.nearest(target).distanceSquaredTo(target)
+                    != kdTree.nearest(target).distanceSquaredTo(target))
+                throw new IllegalStateException("Trees disagree on the nearest point to " + target);
+        }
+        StdOut.printf("ArrayKdTree.nearest %10.1f ns per query%n", arrayNanos);
+        StdOut.printf("KdTree.nearest      %10.1f ns per query%n", kdTreeNanos);
+    }
+}
@@ -3,13 +3,19 @@ import edu.princeton.cs.algs4.Queue;
 import edu.princeton.cs.algs4.RectHV;
 import edu.princeton.cs.algs4.SET;
 import edu.princeton.cs.algs4.StdDraw;
+import edu.princeton.cs.algs4.StdOut;
+import edu.princeton.cs.algs4.StdRandom;
 
 import java.awt.Color;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 public class KdTree {
 
     private Node root;
     private int size;
+    private int height;
 
     private int dimension;
     private static final int VERTICAL = 0;
@@ -19,6 +25,13 @@ public class KdTree {
     private static final int BOTTOM = 2;
     private static final int LEFT = 3;
 
+    // bulk loads build subtrees of more points than this in parallel
+    private static final int PARALLEL_THRESHOLD = 1 << 13;
+
+    // scratch space for the nearest and radius queries, one per thread so that queries can run concurrently
+    private static final ThreadLocal<SearchStack> SEARCH_STACK =
+            ThreadLocal.withInitial(SearchStack::new);
+
     public KdTree()                               // construct an empty set of points
     {
         // specification only requires support of 2 dimensions
@@ -27,6 +40,67 @@ public class KdTree {
         this.root = null;
     }
 
+    public KdTree(Point2D[] points)               // construct a balanced set of the given points
+    {
+        if (points == null) throw new IllegalArgumentException("Cannot insert null points");
+        this.dimension = 2;
+        Point2D[] copy = points.clone();
+        for (Point2D p : copy) {
+            if (p == null) throw new IllegalArgumentException("Cannot insert null point");
+        }
+        load(copy);
+    }
+
+    public KdTree(double[] xs, double[] ys)       // construct a balanced set of the points (xs[i], ys[i])
+    {
+        if (xs == null || ys == null) throw new IllegalArgumentException("Cannot insert null points");
+        if (xs.length != ys.length)
+            throw new IllegalArgumentException("Need the same number of x and y coordinates");
+        this.dimension = 2;
+        Point2D[] points = new Point2D[xs.length];
+        for (int i = 0; i < points.length; i++) points[i] = new Point2D(xs[i], ys[i]);
+        load(points);
+    }
+
+    // build the tree from points, which it rearranges, in parallel on the
+    // common pool; its height is then about lg n. duplicates are merged first:
+    // sorting, also on the common pool, brings equal points together, so a
+    // single pass keeps one of each and counts the rest
+    private void load(Point2D[] points) {
+        Arrays.parallelSort(points);
+        int distinct = 0;
+        int[] counts = new int[points.length];
+        for (int i = 0; i < points.length; i++) {
+            if (distinct > 0 && points[i].equals(points[distinct - 1])) counts[distinct - 1]++;
+            else {
+                points[distinct] = points[i];
+                counts[distinct++] = 1;
+            }
+        }
+
+        // the build reorders the points, so the duplicated ones are set aside
+        int duplicated = 0;
+        for (int i = 0; i < distinct; i++) {
+            if (counts[i] > 1) duplicated++;
+        }
+        Point2D[] duplicates = new Point2D[duplicated];
+        duplicated = 0;
+        for (int i = 0; i < distinct; i++) {
+            if (counts[i] > 1) {
+                counts[duplicated] = counts[i];
+                duplicates[duplicated++] = points[i];
+            }
+        }
+
+        Build build = new Build(points, 0, distinct, 0, 0, 0, 1, 1);
+        this.root = distinct > PARALLEL_THRESHOLD ? ForkJoinPool.commonPool().invoke(build)
+                                                  : build.compute();
+        this.height = build.height[0];
+        this.size = distinct;
+
+        for (int i = 0; i < duplicated; i++) contains(root, duplicates[i], 0).count = counts[i];
+    }
+
     public boolean isEmpty()                      // is the set empty?
     {
         return size() == 0;
@@ -37,75 +111,231 @@ public class KdTree {
         return this.size;
     }
 
+    public int height()                       // number of nodes on the longest root-to-leaf path
+    {
+        return this.height;
+    }
+
     public void insert(
             Point2D p)              // add the point to the set (if it is not already in the set)
     {
         if (p == null) throw new IllegalArgumentException("Cannot insert null point");
-        root = insert(root, p, 0, new RectHV(0, 0, 1, 1));
-        this.size++;
+        insert(p, 1);
     }
 
-    private Node insert(Node root, Point2D p, int depth, RectHV current) {
-        int orientation = depth % this.dimension;
+    // add count copies of p: a point already in the set has its count raised
+    // in the same descent that finds it, rather than being stored again. the
+    // region of the unit square each subtree covers is narrowed on the way
+    // down, so that a RectHV is only made for a new node
+    private void insert(Point2D p, int count) {
+        double xmin = 0, ymin = 0, xmax = 1, ymax = 1;
         if (root == null) {
-            RectHV rect;
-            // set up rectangle
-            switch (orientation) {
-                case VERTICAL:
-                    double xmin, xmax;
-                    boolean rightOfCenter = (p.x() - current.xmin()) >= (current.width() / 2);
-                    xmin = rightOfCenter ? p.x() : current.xmin();
-                    xmax = rightOfCenter ? current.xmax() : p.x();
-                    rect = new RectHV(xmin, current.ymin(), xmax, current.ymax());
-                    return new Node(p, orientation, rect, rightOfCenter ? LEFT : RIGHT);
-                case HORIZONTAL:
-                    double ymin, ymax;
-                    boolean aboveCenter = (p.y() - current.ymin()) >= (current.height() / 2);
-                    ymin = aboveCenter ? p.y() : current.ymin();
-                    ymax = aboveCenter ? current.ymax() : p.y();
-                    rect = new RectHV(current.xmin(), ymin, current.xmax(), ymax);
+            root = newNode(p, VERTICAL, xmin, ymin, xmax, ymax);
+            root.count = count;
+            this.size = 1;
+            this.height = 1;
+            return;
+        }
 
-                    return new Node(p, orientation, rect, aboveCenter ? BOTTOM : TOP);
-                default:
-                    throw new IllegalArgumentException("Unable to parse orientation");
+        Node head = root;
+        for (int depth = 0; ; depth++) {
+            if (head.p.equals(p)) {
+                head.count += count;
+                return;
             }
-
-        }
-        int cmp = comparePoints(p, root.p, orientation);
-        RectHV subdivision;
-        if (cmp < 0) {
+            int orientation = depth % this.dimension;
+            boolean lb = comparePoints(p, head.p, orientation) < 0;
             switch (orientation) {
                 case VERTICAL:
-                    subdivision = new RectHV(current.xmin(), current.ymin(), root.p.x(),
-                                             current.ymax());
+                    if (lb) xmax = head.p.x();
+                    else xmin = head.p.x();
                     break;
                 case HORIZONTAL:
-                    subdivision = new RectHV(current.xmin(), current.ymin(), current.xmax(),
-                                             root.p.y());
+                    if (lb) ymax = head.p.y();
+                    else ymin = head.p.y();
                     break;
                 default:
                     throw new IllegalArgumentException("Unable to parse orientation");
             }
-            root.lb = insert(root.lb, p, depth + 1, subdivision);
+
+            Node child = lb ? head.lb : head.rt;
+            if (child == null) {
+                child = newNode(p, (depth + 1) % this.dimension, xmin, ymin, xmax, ymax);
+                child.count = count;
+                if (lb) head.lb = child;
+                else head.rt = child;
+                this.size++;
+                this.height = Math.max(this.height, depth + 2);
+                return;
+            }
+            head = child;
         }
+    }
 
-        if (cmp >= 0) {
-            switch (orientation) {
-                case VERTICAL:
-                    subdivision = new RectHV(root.p.x(), current.ymin(), current.xmax(),
-                                             current.ymax());
-                    break;
-                case HORIZONTAL:
-                    subdivision = new RectHV(current.xmin(), root.p.y(), current.xmax(),
-                                             current.ymax());
-                    break;
-                default:
-                    throw new IllegalArgumentException("Unable to parse orientation");
+    public void insertAll(Point2D[] points)       // add all the points to the set
+    {
+        if (points == null) throw new IllegalArgumentException("Cannot insert null points");
+        for (Point2D p : points) {
+            if (p == null) throw new IllegalArgumentException("Cannot insert null point");
+        }
+        // an empty set is bulk loaded, which balances it as well
+        if (isEmpty()) {
+            load(points.clone());
+            return;
+        }
+        // otherwise each distinct point is inserted once, with its count
+        Point2D[] sorted = points.clone();
+        Arrays.sort(sorted);
+        int i = 0;
+        while (i < sorted.length) {
+            int j = i + 1;
+            while (j < sorted.length && sorted[j].equals(sorted[i])) j++;
+            insert(sorted[i], j - i);
+            i = j;
+        }
+    }
+
+    // number of times p has been inserted; 0 if it is not in the set
+    public int count(Point2D p)
+    {
+        if (p == null) throw new IllegalArgumentException("Cannot check null point");
+        Node node = contains(root, p, 0);
+        return node == null ? 0 : node.count;
+    }
+
+    // a node for p, which splits the given region; its rect is the part of the
+    // region on the far side of p from the region's nearer edge, which is what
+    // draw() outlines
+    private static Node newNode(Point2D p, int orientation, double xmin, double ymin,
+                                double xmax, double ymax) {
+        RectHV rect;
+        // set up rectangle
+        switch (orientation) {
+            case VERTICAL:
+                boolean rightOfCenter = (p.x() - xmin) >= ((xmax - xmin) / 2);
+                rect = new RectHV(rightOfCenter ? p.x() : xmin, ymin,
+                                  rightOfCenter ? xmax : p.x(), ymax);
+                return new Node(p, orientation, rect, rightOfCenter ? LEFT : RIGHT);
+            case HORIZONTAL:
+                boolean aboveCenter = (p.y() - ymin) >= ((ymax - ymin) / 2);
+                rect = new RectHV(xmin, aboveCenter ? p.y() : ymin,
+                                  xmax, aboveCenter ? ymax : p.y());
+                return new Node(p, orientation, rect, aboveCenter ? BOTTOM : TOP);
+            default:
+                throw new IllegalArgumentException("Unable to parse orientation");
+        }
+    }
+
+    // builds a balanced tree of the points in points[lo, hi) at the given depth,
+    // which cover the given region, rearranging them as it goes; the node of
+    // each subtree is the first point (in the order of the split) of those
+    // with the median key, so that, as with insert(), points with keys equal
+    // to a node's lie in its rt subtree. height[0] is raised to the height of
+    // the tree built
+    private Node build(Point2D[] points, int lo, int hi, int depth, double xmin, double ymin,
+                       double xmax, double ymax, int[] height) {
+        if (lo >= hi) return null;
+        int orientation = depth % this.dimension;
+        height[0] = Math.max(height[0], depth + 1);
+
+        int median = select(points, lo, hi, lo + (hi - lo) / 2, orientation);
+        Point2D p = points[median];
+        Node node = newNode(p, orientation, xmin, ymin, xmax, ymax);
+
+        // the regions of the two subtrees: lb ends and rt starts at the split
+        double lbXmax = xmax, lbYmax = ymax, rtXmin = xmin, rtYmin = ymin;
+        if (orientation == VERTICAL) lbXmax = rtXmin = p.x();
+        else lbYmax = rtYmin = p.y();
+
+        // split large subtrees between the workers, and build small ones here
+        if (hi - lo > PARALLEL_THRESHOLD) {
+            Build lb = new Build(points, lo, median, depth + 1, xmin, ymin, lbXmax, lbYmax);
+            Build rt = new Build(points, median + 1, hi, depth + 1, rtXmin, rtYmin, xmax, ymax);
+            lb.fork();
+            node.rt = rt.compute();
+            node.lb = lb.join();
+            height[0] = Math.max(height[0], Math.max(lb.height[0], rt.height[0]));
+        }
+        else {
+            node.lb = build(points, lo, median, depth + 1, xmin, ymin, lbXmax, lbYmax, height);
+            node.rt = build(points, median + 1, hi, depth + 1, rtXmin, rtYmin, xmax, ymax, height);
+        }
+        return node;
+    }
+
+    // rearranges points[lo, hi) so that the point at index k is the one that
+    // would be there if they were sorted by key, and no point before index k
+    // has a greater key or after it a smaller one; then moves every point
+    // before k whose key equals it to just before k, and returns the index of
+    // the first of those - so that every point before the returned index has
+    // a strictly smaller key
+    private int select(Point2D[] points, int lo, int hi, int k, int orientation) {
+        int from = lo, to = hi;
+        while (to - from > 1) {
+            // median of three as the pivot, which keeps sorted input linear
+            int mid = from + (to - from) / 2;
+            Point2D a = points[from], b = points[mid], c = points[to - 1];
+            Point2D pivot;
+            if (comparePoints(a, b, orientation) < 0)
+                pivot = comparePoints(b, c, orientation) < 0 ? b
+                        : (comparePoints(a, c, orientation) < 0 ? c : a);
+            else
+                pivot = comparePoints(a, c, orientation) < 0 ? a
+                        : (comparePoints(b, c, orientation) < 0 ? c : b);
+
+            // Dijkstra's 3-way partition: [from, lt) < pivot, [lt, gt) == pivot,
+            // (gt, to) > pivot
+            int lt = from, i = from, gt = to - 1;
+            while (i <= gt) {
+                int cmp = comparePoints(points[i], pivot, orientation);
+                if (cmp < 0) swap(points, lt++, i++);
+                else if (cmp > 0) swap(points, i, gt--);
+                else i++;
             }
-            root.rt = insert(root.rt, p, depth + 1, subdivision);
+            if (k < lt) to = lt;
+            else if (k > gt) from = gt + 1;
+            else break;
         }
 
-        return root;
+        // gather the points before k with k's key next to it
+        int first = k;
+        for (int i = k - 1; i >= lo; i--) {
+            if (comparePoints(points[i], points[k], orientation) == 0) swap(points, i, --first);
+        }
+        if (first < k) swap(points, first, k);
+        return first;
+    }
+
+    private static void swap(Point2D[] points, int i, int j) {
+        Point2D point = points[i];
+        points[i] = points[j];
+        points[j] = point;
+    }
+
+    // builds one subtree of a bulk load, possibly on another worker
+    private class Build extends RecursiveTask<Node> {
+        private static final long serialVersionUID = 1L;
+
+        private Point2D[] points;
+        private int lo, hi, depth;
+        private double xmin, ymin, xmax, ymax;
+        private int[] height = new int[1];
+
+        Build(Point2D[] points, int lo, int hi, int depth, double xmin, double ymin, double xmax,
+              double ymax) {
+            this.points = points;
+            this.lo = lo;
+            this.hi = hi;
+            this.depth = depth;
+            this.xmin = xmin;
+            this.ymin = ymin;
+            this.xmax = xmax;
+            this.ymax = ymax;
+        }
+
+        protected Node compute() {
+            return build(points, lo, hi, depth, xmin, ymin, xmax, ymax, height);
+        }
     }
 
     public boolean contains(Point2D p)            // does the set contain point p?
@@ -201,37 +431,280 @@ public class KdTree {
             Point2D p)             // a nearest neighbor in the set to point p; null if the set is empty
     {
         if (p == null) throw new IllegalArgumentException("Cannot check null point");
-        Node head = root;
-        int depth = 0, orientation;
-        double minDistSquared = Double.MAX_VALUE, curDistSquared;
+        if (root == null) return null;
+        double x = p.x(), y = p.y();
+        double minDistSquared = Double.POSITIVE_INFINITY;
         Point2D nearest = null;
-        while (head != null) {
-            curDistSquared = head.p.distanceSquaredTo(p);
-            // if point is equivalent to p, return that point
-            if (curDistSquared == 0) return head.p;
-            if (curDistSquared == Math.min(minDistSquared, curDistSquared)) {
+
+        // depth-first branch and bound: each entry on the stack is a subtree with
+        // the region of the plane it covers, which is narrowed at every level
+        // on the way down (node rects only describe the line drawn for the node)
+        SearchStack stack = SEARCH_STACK.get();
+        stack.clear();
+        stack.push(root, 0, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY,
+                   Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY);
+        while (!stack.isEmpty()) {
+            int top = stack.pop();
+            Node head = stack.nodes[top];
+            stack.nodes[top] = null;
+            int depth = stack.depths[top];
+            double[] bounds = stack.bounds;
+            double xmin = bounds[4 * top], ymin = bounds[4 * top + 1];
+            double xmax = bounds[4 * top + 2], ymax = bounds[4 * top + 3];
+
+            // no point in this region can be closer than the nearest so far
+            if (distanceSquaredTo(x, y, xmin, ymin, xmax, ymax) >= minDistSquared) continue;
+
+            double dx = head.p.x() - x, dy = head.p.y() - y;
+            double curDistSquared = dx * dx + dy * dy;
+            if (curDistSquared < minDistSquared) {
                 nearest = head.p;
                 minDistSquared = curDistSquared;
             }
-            orientation = depth % this.dimension;
-            switch (orientation) {
-                case VERTICAL:
-                    head = head.p.x() <= p.x() ? head.rt : head.lb;
-                    break;
-                case HORIZONTAL:
-                    head = head.p.y() <= p.y() ? head.rt : head.lb;
-                    break;
-                default:
-                    throw new IllegalArgumentException("Unable to parse orientation");
-            }
-            depth++;
+
+            pushChildren(stack, head, depth, x, y, xmin, ymin, xmax, ymax);
         }
         return nearest;
     }
 
+    // the k points in the set nearest to p, nearest first, in out[0] to
+    // out[count - 1]; returns count, which is less than k only if the set
+    // has fewer than k points
+    public int nearest(Point2D p, int k, Point2D[] out)
+    {
+        if (p == null || out == null) throw new IllegalArgumentException("Cannot check null point");
+        if (k <= 0 || k > out.length)
+            throw new IllegalArgumentException("k must be positive and fit in out");
+        double x = p.x(), y = p.y();
+
+        // out[0] to out[count - 1] is a max-heap on distance, so the farthest of
+        // the k nearest so far is at the root and is the bound for pruning
+        SearchStack stack = SEARCH_STACK.get();
+        double[] distances = stack.distances(k);
+        int count = 0;
+        stack.clear();
+        if (root != null) stack.push(root, 0, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY,
+                                     Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY);
+        while (!stack.isEmpty()) {
+            int top = stack.pop();
+            Node head = stack.nodes[top];
+            stack.nodes[top] = null;
+            int depth = stack.depths[top];
+            double[] bounds = stack.bounds;
+            double xmin = bounds[4 * top], ymin = bounds[4 * top + 1];
+            double xmax = bounds[4 * top + 2], ymax = bounds[4 * top + 3];
+
+            if (count == k && distanceSquaredTo(x, y, xmin, ymin, xmax, ymax) >= distances[0])
+                continue;
+
+            double dx = head.p.x() - x, dy = head.p.y() - y;
+            double curDistSquared = dx * dx + dy * dy;
+            if (count < k) {
+                out[count] = head.p;
+                distances[count] = curDistSquared;
+                siftUp(out, distances, count++);
+            }
+            else if (curDistSquared < distances[0]) {
+                out[0] = head.p;
+                distances[0] = curDistSquared;
+                siftDown(out, distances, 0, count);
+            }
+
+            pushChildren(stack, head, depth, x, y, xmin, ymin, xmax, ymax);
+        }
+
+        // heapsort in place: moving the farthest to the end each time leaves
+        // the points nearest first
+        for (int last = count - 1; last > 0; last--) {
+            swap(out, distances, 0, last);
+            siftDown(out, distances, 0, last);
+        }
+        return count;
+    }
+
+    // the points in the set within distance r of p (or on the circle), in no
+    // particular order, in out[0] to out[min(count, out.length) - 1]; returns
+    // count, the number of such points, which may be more than out holds
+    public int withinRadius(Point2D p, double r, Point2D[] out)
+    {
+        if (p == null || out == null) throw new IllegalArgumentException("Cannot check null point");
+        if (!(r >= 0)) throw new IllegalArgumentException("Radius must be non-negative");
+        double x = p.x(), y = p.y(), radiusSquared = r * r;
+
+        SearchStack stack = SEARCH_STACK.get();
+        int count = 0;
+        stack.clear();
+        if (root != null) stack.push(root, 0, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY,
+                                     Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY);
+        while (!stack.isEmpty()) {
+            int top = stack.pop();
+            Node head = stack.nodes[top];
+            stack.nodes[top] = null;
+            int depth = stack.depths[top];
+            double[] bounds = stack.bounds;
+            double xmin = bounds[4 * top], ymin = bounds[4 * top + 1];
+            double xmax = bounds[4 * top + 2], ymax = bounds[4 * top + 3];
+
+            if (distanceSquaredTo(x, y, xmin, ymin, xmax, ymax) > radiusSquared) continue;
+
+            double dx = head.p.x() - x, dy = head.p.y() - y;
+            if (dx * dx + dy * dy <= radiusSquared) {
+                if (count < out.length) out[count] = head.p;
+                count++;
+            }
+
+            pushChildren(stack, head, depth, x, y, xmin, ymin, xmax, ymax);
+        }
+        return count;
+    }
+
+    // push the children of head, which covers the given region, onto stack.
+    // the far side goes first so that the side holding (x, y) is searched
+    // first and tightens the bound before the far side is looked at
+    private void pushChildren(SearchStack stack, Node head, int depth, double x, double y,
+                              double xmin, double ymin, double xmax, double ymax) {
+        if (depth % this.dimension == VERTICAL) {
+            double split = head.p.x();
+            if (x < split) {
+                if (head.rt != null) stack.push(head.rt, depth + 1, split, ymin, xmax, ymax);
+                if (head.lb != null) stack.push(head.lb, depth + 1, xmin, ymin, split, ymax);
+            }
+            else {
+                if (head.lb != null) stack.push(head.lb, depth + 1, xmin, ymin, split, ymax);
+                if (head.rt != null) stack.push(head.rt, depth + 1, split, ymin, xmax, ymax);
+            }
+        }
+        else {
+            double split = head.p.y();
+            if (y < split) {
+                if (head.rt != null) stack.push(head.rt, depth + 1, xmin, split, xmax, ymax);
+                if (head.lb != null) stack.push(head.lb, depth + 1, xmin, ymin, xmax, split);
+            }
+            else {
+                if (head.lb != null) stack.push(head.lb, depth + 1, xmin, ymin, xmax, split);
+                if (head.rt != null) stack.push(head.rt, depth + 1, xmin, split, xmax, ymax);
+            }
+        }
+    }
+
+    // max-heap helpers for nearest(p, k, out)
+    private static void siftUp(Point2D[] points, double[] distances, int i) {
+        while (i > 0 && distances[(i - 1) / 2] < distances[i]) {
+            swap(points, distances, i, (i - 1) / 2);
+            i = (i - 1) / 2;
+        }
+    }
+
+    private static void siftDown(Point2D[] points, double[] distances, int i, int size) {
+        while (2 * i + 1 < size) {
+            int child = 2 * i + 1;
+            if (child + 1 < size && distances[child + 1] > distances[child]) child++;
+            if (distances[i] >= distances[child]) break;
+            swap(points, distances, i, child);
+            i = child;
+        }
+    }
+
+    private static void swap(Point2D[] points, double[] distances, int i, int j) {
+        Point2D point = points[i];
+        points[i] = points[j];
+        points[j] = point;
+        double distance = distances[i];
+        distances[i] = distances[j];
+        distances[j] = distance;
+    }
+
+    // squared distance from (x, y) to the closest point of the given region
+    private static double distanceSquaredTo(double x, double y, double xmin, double ymin,
+                                            double xmax, double ymax) {
+        double dx = x < xmin ? xmin - x : (x > xmax ? x - xmax : 0);
+        double dy = y < ymin ? ymin - y : (y > ymax ? y - ymax : 0);
+        return dx * dx + dy * dy;
+    }
+
     public static void main(
             String[] args)                  // unit testing of the methods (optional)
     {
+        // times nearest() against PointSET on args[0] random points (default
+        // 100000) and args[1] random queries (default 100000)
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        int queries = args.length > 1 ? Integer.parseInt(args[1]) : 100000;
+        KdTree kdTree = new KdTree();
+        PointSET pointSet = new PointSET();
+        for (int i = 0; i < n; i++) {
+            Point2D point = new Point2D(StdRandom.uniformDouble(), StdRandom.uniformDouble());
+            kdTree.insert(point);
+            pointSet.insert(point);
+        }
+        Point2D[] targets = new Point2D[queries];
+        for (int i = 0; i < queries; i++)
+            targets[i] = new Point2D(StdRandom.uniformDouble(), StdRandom.uniformDouble());
+
+        // the brute-force search is far slower, so it only answers the first
+        // few queries, which are also used to check the tree's answers
+        int checked = Math.min(queries, Math.max(1, 100000000 / Math.max(1, n)));
+        long start = System.nanoTime();
+        for (int i = 0; i < queries; i++) kdTree.nearest(targets[i]);
+        double kdTreeNanos = (double) (System.nanoTime() - start) / queries;
+        start = System.nanoTime();
+        for (int i = 0; i < checked; i++) {
+            Point2D expected = pointSet.nearest(targets[i]);
+            Point2D actual = kdTree.nearest(targets[i]);
+            if (expected.distanceSquaredTo(targets[i]) != actual.distanceSquaredTo(targets[i]))
+                throw new IllegalStateException("Wrong nearest point for " + targets[i]);
+        }
+        double pointSetNanos = (double) (System.nanoTime() - start) / checked;
+
+        StdOut.printf("KdTree.nearest   %12.1f ns per query%n", kdTreeNanos);
+        StdOut.printf("PointSET.nearest %12.1f ns per query (%d queries)%n", pointSetNanos, checked);
+    }
+
+    // the subtrees still to be searched by a query, kept in parallel arrays
+    // that are reused between searches so that a search allocates nothing
+    private static class SearchStack {
+        private Node[] nodes = new Node[64];
+        private int[] depths = new int[64];
+        // xmin, ymin, xmax and ymax of the region of each subtree
+        private double[] bounds = new double[4 * 64];
+        private int size;
+        // distances of the points found by nearest(p, k, out)
+        private double[] distances = new double[16];
+
+        private void clear() {
+            size = 0;
+        }
+
+        // room for the distances of k points
+        private double[] distances(int k) {
+            if (distances.length < k) distances = new double[Math.max(k, 2 * distances.length)];
+            return distances;
+        }
+
+        private boolean isEmpty() {
+            return size == 0;
+        }
+
+        private void push(Node node, int depth, double xmin, double ymin, double xmax,
+                          double ymax) {
+            if (size == nodes.length) {
+                nodes = Arrays.copyOf(nodes, 2 * size);
+                depths = Arrays.copyOf(depths, 2 * size);
+                bounds = Arrays.copyOf(bounds, 8 * size);
+            }
+            nodes[size] = node;
+            depths[size] = depth;
+            bounds[4 * size] = xmin;
+            bounds[4 * size + 1] = ymin;
+            bounds[4 * size + 2] = xmax;
+            bounds[4 * size + 3] = ymax;
+            size++;
+        }
+
+        // the index of the entry popped, which stays valid until the next push
+        // (each query clears the node, so the stack does not keep a tree alive)
+        private int pop() {
+            return --size;
+        }
     }
 
     private static class Node {
@@ -241,6 +714,7 @@ public class KdTree {
         private Node rt; // the right/top subtree
         private int orientation;
         private int line;
+        private int count = 1; // number of times the point has been inserted
 
         public Node(Point2D p, int orientation, RectHV rect, int line) {
             this.p = p;
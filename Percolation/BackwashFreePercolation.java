@@ -0,0 +1,174 @@
+import edu.princeton.cs.algs4.StdOut;
+
+import java.util.SplittableRandom;
+
+// the same grid as Percolation, but every root of the union-find carries two
+// flags saying whether its set touches the top row and whether it touches the
+// bottom row. a union just ors the flags together, so a site is full when its
+// root has the top flag, and the grid percolates as soon as a root has both -
+// without virtual sites (so there is no backwash through a virtual bottom) and
+// without the extra find Percolation needs after every open
+public class BackwashFreePercolation {
+    private static final byte TOP = 1;
+    private static final byte BOTTOM = 2;
+
+    private int n;
+
+    private int numberOpen;
+
+    // one bit per site, set when the site is open (the same layout as Percolation)
+    private long[] sites;
+
+    // the site at (row, col) is element ((row - 1) * n) + (col - 1)
+    private int[] parent;
+    private int[] size;
+    // TOP and BOTTOM flags of each root
+    private byte[] flags;
+
+    private boolean percolates;
+
+    // creates n-by-n grid, with all sites initially blocked
+    public BackwashFreePercolation(int n) {
+        if (n <= 0) throw new IllegalArgumentException("Grid must have positive dimensions");
+        this.n = n;
+        this.sites = new long[(n * n + 63) >>> 6];
+        this.parent = new int[n * n];
+        this.size = new int[n * n];
+        this.flags = new byte[n * n];
+        for (int i = 0; i < n * n; i++) {
+            parent[i] = i;
+            size[i] = 1;
+        }
+        this.numberOpen = 0;
+        this.percolates = false;
+    }
+
+    private boolean validIndex(int row, int col) {
+        return !((row < 1 || row > n) || (col < 1 || col > n));
+    }
+
+    // opens the site (row, col) if it is not open already
+    public void open(int row, int col) {
+        if (!validIndex(row, col))
+            throw new IllegalArgumentException("Requested index outside grid");
+
+        int site = (row - 1) * n + (col - 1);
+        if (isOpenSite(site)) return;
+
+        sites[site >>> 6] |= 1L << site;
+        numberOpen++;
+        if (row == 1) flags[site] |= TOP;
+        if (row == n) flags[site] |= BOTTOM;
+
+        if (col > 1 && isOpenSite(site - 1)) union(site, site - 1);
+        if (row > 1 && isOpenSite(site - n)) union(site, site - n);
+        if (col < n && isOpenSite(site + 1)) union(site, site + 1);
+        if (row < n && isOpenSite(site + n)) union(site, site + n);
+
+        // a single site in a one-row grid has both flags without any union
+        if (flags[find(site)] == (TOP | BOTTOM)) percolates = true;
+    }
+
+    private boolean isOpenSite(int site) {
+        return (sites[site >>> 6] & (1L << site)) != 0;
+    }
+
+    // is the site (row, col) open?
+    public boolean isOpen(int row, int col) {
+        if (!validIndex(row, col))
+            throw new IllegalArgumentException("Requested index outside grid");
+        return isOpenSite((row - 1) * n + (col - 1));
+    }
+
+    // is the site (row, col) full?
+    public boolean isFull(int row, int col) {
+        if (!validIndex(row, col))
+            throw new IllegalArgumentException("Requested index outside grid");
+        int site = (row - 1) * n + (col - 1);
+        return isOpenSite(site) && (flags[find(site)] & TOP) != 0;
+    }
+
+    // returns the number of open sites
+    public int numberOfOpenSites() {
+        return numberOpen;
+    }
+
+    // does the system percolate?
+    public boolean percolates() {
+        return percolates;
+    }
+
+    private int find(int p) {
+        while (p != parent[p]) {
+            parent[p] = parent[parent[p]];
+            p = parent[p];
+        }
+        return p;
+    }
+
+    private void union(int p, int q) {
+        int rootP = find(p);
+        int rootQ = find(q);
+        if (rootP == rootQ) return;
+        if (size[rootP] < size[rootQ]) {
+            int swap = rootP;
+            rootP = rootQ;
+            rootQ = swap;
+        }
+        parent[rootQ] = rootP;
+        size[rootP] += size[rootQ];
+        flags[rootP] |= flags[rootQ];
+    }
+
+    // times Percolation and BackwashFreePercolation opening the same random
+    // sequences of sites on an n-by-n grid until each percolates, for args[1]
+    // trials with optional seed args[2]
+    public static void main(String[] args) {
+        int n = Integer.parseInt(args[0]);
+        int trials = Integer.parseInt(args[1]);
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 0;
+
+        // the open sequences, drawn up front so both engines see the same ones
+        SplittableRandom random = new SplittableRandom(seed);
+        int[][] orders = new int[trials][n * n];
+        for (int[] order : orders) {
+            for (int i = 0; i < order.length; i++) order[i] = i;
+            for (int i = order.length - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                int site = order[j];
+                order[j] = order[i];
+                order[i] = site;
+            }
+        }
+
+        // run each engine twice and keep the second timing, once the JIT has warmed up
+        long maxTracking = 0, flagged = 0, openedByMaxTracking = 0, openedByFlagged = 0;
+        for (int pass = 0; pass < 2; pass++) {
+            openedByMaxTracking = 0;
+            long start = System.nanoTime();
+            for (int[] order : orders) {
+                Percolation percolation = new Percolation(n);
+                for (int k = 0; !percolation.percolates(); k++)
+                    percolation.open(order[k] / n + 1, order[k] % n + 1);
+                openedByMaxTracking += percolation.numberOfOpenSites();
+            }
+            maxTracking = System.nanoTime() - start;
+
+            openedByFlagged = 0;
+            start = System.nanoTime();
+            for (int[] order : orders) {
+                BackwashFreePercolation percolation = new BackwashFreePercolation(n);
+                for (int k = 0; !percolation.percolates(); k++)
+                    percolation.open(order[k] / n + 1, order[k] % n + 1);
+                openedByFlagged += percolation.numberOfOpenSites();
+            }
+            flagged = System.nanoTime() - start;
+        }
+
+        if (openedByMaxTracking != openedByFlagged)
+            throw new IllegalStateException("Engines disagree on when the grid percolates");
+        StdOut.printf("mean threshold = %.10f%n", (double) openedByFlagged / trials / (n * n));
+        StdOut.printf("Percolation             %10.1f ms%n", maxTracking / 1e6);
+        StdOut.printf("BackwashFreePercolation %10.1f ms%n", flagged / 1e6);
+    }
+}
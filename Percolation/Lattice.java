@@ -0,0 +1,135 @@
+import java.util.Arrays;
+
+// a rectangular lattice of sites in any number of dimensions, numbered by flat
+// int indices with axis 0 varying slowest, so that the sites of each layer
+// across axis 0 (each row, in 2D) are numbered consecutively and the last
+// layer has the highest numbers. the neighbors of a site are the sites one
+// step away along each axis, found by adding precomputed offsets; on a
+// periodic lattice every axis but axis 0 wraps around, so the lattice is open
+// only at its first and last layers
+public class Lattice {
+
+    private int[] dimensions;
+    private boolean periodic;
+    private int sites;
+
+    // distance between the indices of neighbors along each axis
+    private int[] stride;
+    // offsets[2 * axis] and offsets[2 * axis + 1] step back and forward along
+    // axis; wrapped[] holds the same steps taken across the boundary
+    private int[] offsets;
+    private int[] wrapped;
+
+    // a lattice with the given size along each axis, wrapping around every
+    // axis but the first if periodic
+    public Lattice(boolean periodic, int... dimensions) {
+        if (dimensions == null || dimensions.length == 0)
+            throw new IllegalArgumentException("Lattice must have at least one axis");
+        long count = 1;
+        for (int size : dimensions) {
+            if (size <= 0) throw new IllegalArgumentException("Lattice must have positive dimensions");
+            count *= size;
+            if (count >= Integer.MAX_VALUE)
+                throw new IllegalArgumentException("Lattice has too many sites");
+        }
+        this.dimensions = dimensions.clone();
+        this.periodic = periodic;
+        this.sites = (int) count;
+
+        int axes = dimensions.length;
+        this.stride = new int[axes];
+        this.offsets = new int[2 * axes];
+        this.wrapped = new int[2 * axes];
+        int step = 1;
+        for (int axis = axes - 1; axis >= 0; axis--) {
+            stride[axis] = step;
+            offsets[2 * axis] = -step;
+            offsets[2 * axis + 1] = step;
+            wrapped[2 * axis] = (dimensions[axis] - 1) * step;
+            wrapped[2 * axis + 1] = -(dimensions[axis] - 1) * step;
+            step *= dimensions[axis];
+        }
+    }
+
+    // the n-by-n grid of Percolation
+    public static Lattice square(int n) {
+        return new Lattice(false, n, n);
+    }
+
+    // an n-by-n-by-n cube
+    public static Lattice cubic(int n) {
+        return new Lattice(false, n, n, n);
+    }
+
+    // number of axes
+    public int axes() {
+        return dimensions.length;
+    }
+
+    // number of sites along axis
+    public int size(int axis) {
+        return dimensions[axis];
+    }
+
+    public boolean isPeriodic() {
+        return periodic;
+    }
+
+    // number of sites in the lattice
+    public int sites() {
+        return sites;
+    }
+
+    // number of sites in each layer across axis 0; the first layer is sites 0
+    // to layerSize() - 1 and the last is sites() - layerSize() to sites() - 1
+    public int layerSize() {
+        return stride[0];
+    }
+
+    // most neighbors a site can have, which is the room neighbors() needs
+    public int maxNeighbors() {
+        return 2 * dimensions.length;
+    }
+
+    // the index of the site with the given (0-based) coordinates
+    public int site(int... coordinates) {
+        if (coordinates == null || coordinates.length != dimensions.length)
+            throw new IllegalArgumentException("Need one coordinate per axis");
+        int site = 0;
+        for (int axis = 0; axis < coordinates.length; axis++) {
+            if (coordinates[axis] < 0 || coordinates[axis] >= dimensions[axis])
+                throw new IllegalArgumentException("Requested index outside lattice");
+            site += coordinates[axis] * stride[axis];
+        }
+        return site;
+    }
+
+    // puts the indices of the neighbors of site in neighbors[0] to
+    // neighbors[count - 1] and returns count
+    public int neighbors(int site, int[] neighbors) {
+        int count = 0, rest = site;
+        for (int axis = 0; axis < dimensions.length; axis++) {
+            // peel the coordinates off from the slowest axis down, which costs
+            // one division per axis but the last
+            int coordinate = rest;
+            if (stride[axis] != 1) {
+                coordinate = rest / stride[axis];
+                rest -= coordinate * stride[axis];
+            }
+            int size = dimensions[axis];
+            if (size == 1) continue;
+            boolean wraps = periodic && axis > 0;
+
+            if (coordinate > 0) neighbors[count++] = site + offsets[2 * axis];
+            else if (wraps) neighbors[count++] = site + wrapped[2 * axis];
+
+            if (coordinate < size - 1) neighbors[count++] = site + offsets[2 * axis + 1];
+            else if (wraps) neighbors[count++] = site + wrapped[2 * axis + 1];
+        }
+        return count;
+    }
+
+    public String toString() {
+        return (periodic ? "periodic " : "") + Arrays.toString(dimensions).replace(", ", "x");
+    }
+}
@@ -0,0 +1,169 @@
+import edu.princeton.cs.algs4.StdOut;
+
+import java.util.SplittableRandom;
+
+// site percolation on any Lattice: the system percolates when an open path
+// joins the first layer across axis 0 to the last. sites are given by their
+// flat index in the lattice, and the union-find is the same one Percolation
+// uses, with element 0 as the canonical element of the filled set and site s
+// at element s + 1
+public class LatticePercolation {
+
+    private Lattice lattice;
+
+    // number of sites in the lattice, and in each of its first and last layers
+    private int size;
+    private int layerSize;
+
+    // on a plain 2D lattice (layerSize sites wide) open() checks the four
+    // neighbors inline, as Percolation does, instead of asking the lattice
+    private boolean plane;
+
+    private int numberOpen;
+
+    // one bit per site, set when the site is open
+    private long[] sites;
+
+    private WeightedQuickUnionUFWithMax system;
+
+    private boolean percolates;
+
+    // scratch space for the neighbors of the site being opened
+    private int[] neighbors;
+
+    // creates the lattice with all sites initially blocked
+    public LatticePercolation(Lattice lattice) {
+        if (lattice == null) throw new IllegalArgumentException("Null lattice");
+        if (lattice.sites() >= WeightedQuickUnionUFWithMax.MAX_ELEMENTS)
+            throw new IllegalArgumentException("Lattice has too many sites");
+        this.lattice = lattice;
+        this.size = lattice.sites();
+        this.layerSize = lattice.layerSize();
+        this.plane = lattice.axes() == 2 && !lattice.isPeriodic();
+        this.sites = new long[(lattice.sites() + 63) >>> 6];
+        this.system = new WeightedQuickUnionUFWithMax(lattice.sites() + 1);
+        this.neighbors = new int[lattice.maxNeighbors()];
+        this.numberOpen = 0;
+        this.percolates = false;
+    }
+
+    private void validate(int site) {
+        if (site < 0 || site >= size)
+            throw new IllegalArgumentException("Requested index outside lattice");
+    }
+
+    public Lattice lattice() {
+        return lattice;
+    }
+
+    // opens site if it is not open already
+    public void open(int site) {
+        validate(site);
+        if (isOpenSite(site)) return;
+
+        sites[site >>> 6] |= 1L << site;
+        numberOpen++;
+        if (site < layerSize) system.union(site + 1, 0);
+
+        if (plane) {
+            int col = site % layerSize;
+            if (col > 0 && isOpenSite(site - 1)) system.union(site + 1, site);
+            if (site >= layerSize && isOpenSite(site - layerSize))
+                system.union(site + 1, site + 1 - layerSize);
+            if (col < layerSize - 1 && isOpenSite(site + 1)) system.union(site + 1, site + 2);
+            if (site < size - layerSize && isOpenSite(site + layerSize))
+                system.union(site + 1, site + 1 + layerSize);
+        }
+        else {
+            int count = lattice.neighbors(site, neighbors);
+            for (int i = 0; i < count; i++) {
+                if (isOpenSite(neighbors[i])) system.union(site + 1, neighbors[i] + 1);
+            }
+        }
+
+        // as in Percolation, the filled set reaches the last layer once it
+        // holds an element above every element before that layer
+        if (system.find(site + 1) == 0)
+            this.percolates = system.max(0) > size - layerSize;
+    }
+
+    private boolean isOpenSite(int site) {
+        return (sites[site >>> 6] & (1L << site)) != 0;
+    }
+
+    // is site open?
+    public boolean isOpen(int site) {
+        validate(site);
+        return isOpenSite(site);
+    }
+
+    // is site full?
+    public boolean isFull(int site) {
+        validate(site);
+        return system.find(site + 1) == 0;
+    }
+
+    // returns the number of open sites
+    public int numberOfOpenSites() {
+        return numberOpen;
+    }
+
+    // does the system percolate?
+    public boolean percolates() {
+        return percolates;
+    }
+
+    // estimates the percolation threshold of an n^dimensions lattice (args[0],
+    // args[2], default 2) from args[1] trials, with optional "periodic"
+    // args[3]; on a plain 2D lattice it also times Percolation opening the
+    // same sites
+    public static void main(String[] args) {
+        int n = Integer.parseInt(args[0]);
+        int trials = Integer.parseInt(args[1]);
+        int dimensions = args.length > 2 ? Integer.parseInt(args[2]) : 2;
+        boolean periodic = args.length > 3 && args[3].equals("periodic");
+        int[] size = new int[dimensions];
+        for (int axis = 0; axis < dimensions; axis++) size[axis] = n;
+        Lattice lattice = new Lattice(periodic, size);
+
+        // the open sequences, drawn up front so that both engines see the same ones
+        SplittableRandom random = new SplittableRandom(0);
+        int[][] orders = new int[trials][lattice.sites()];
+        for (int[] order : orders) {
+            for (int i = 0; i < order.length; i++) order[i] = i;
+            for (int i = order.length - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                int site = order[j];
+                order[j] = order[i];
+                order[i] = site;
+            }
+        }
+
+        // run each engine twice and keep the second timing, once the JIT has warmed up
+        long opened = 0, elapsed = 0, elapsedByPercolation = 0;
+        boolean compare = dimensions == 2 && !periodic;
+        for (int pass = 0; pass < 2; pass++) {
+            opened = 0;
+            long start = System.nanoTime();
+            for (int[] order : orders) {
+                LatticePercolation percolation = new LatticePercolation(lattice);
+                for (int k = 0; !percolation.percolates(); k++) percolation.open(order[k]);
+                opened += percolation.numberOfOpenSites();
+            }
+            elapsed = System.nanoTime() - start;
+
+            if (!compare) continue;
+            start = System.nanoTime();
+            for (int[] order : orders) {
+                Percolation percolation = new Percolation(n);
+                for (int k = 0; !percolation.percolates(); k++)
+                    percolation.open(order[k] / n + 1, order[k] % n + 1);
+            }
+            elapsedByPercolation = System.nanoTime() - start;
+        }
+
+        StdOut.printf("%s mean threshold = %.10f (%.1f ms)%n", lattice,
+                      (double) opened / trials / lattice.sites(), elapsed / 1e6);
+        if (compare) StdOut.printf("Percolation (%.1f ms)%n", elapsedByPercolation / 1e6);
+    }
+}
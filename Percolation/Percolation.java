@@ -1,9 +1,26 @@
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
 public class Percolation {
+    // "PER1", the first int of every file written by save()
+    private static final int MAGIC = 0x50455231;
+    private static final int HEADER_BYTES = 4 * Integer.BYTES;
+    // most bytes mapped at once, well below the 2GB limit on a mapped buffer
+    private static final long CHUNK_BYTES = 1L << 30;
+
     private int n;
 
     private int numberOpen;
 
-    private boolean[][] sites;
+    // one bit per site, set when the site is open - the site at (row, col) is
+    // bit ((row - 1) * n) + (col - 1), which is word index >>> 6, bit index & 63
+    private long[] sites;
 
     private WeightedQuickUnionUFWithMax system;
 
@@ -12,10 +29,11 @@ public class Percolation {
     // creates n-by-n grid, with all sites initially blocked
     public Percolation(int n) {
         if (n <= 0) throw new IllegalArgumentException("Grid must have positive dimensions");
+        if (tooLarge(n)) throw new IllegalArgumentException("Grid has too many sites");
         // keep record of grid dimensions for handling requests to out-of-bounds indices
         this.n = n;
         // empty n x n grid of closed sites
-        this.sites = new boolean[n][n];
+        this.sites = new long[(n * n + 63) >>> 6];
         // the data structure keeping track of whether the grid percolates
         // initializing with one more element than grid elements because object
         // 0 will be the canonical element of the filled set
@@ -31,6 +49,16 @@ public class Percolation {
         this.percolates = false;
     }
 
+    // a grid restored by load()
+    private Percolation(int n, int numberOpen, boolean percolates, long[] sites,
+                        WeightedQuickUnionUFWithMax system) {
+        this.n = n;
+        this.numberOpen = numberOpen;
+        this.percolates = percolates;
+        this.sites = sites;
+        this.system = system;
+    }
+
     private boolean validIndex(int row, int col) {
         return !((row < 1 || row > n) || (col < 1 || col > n));
     }
@@ -40,42 +68,47 @@ public class Percolation {
         if (!validIndex(row, col))
             throw new IllegalArgumentException("Requested index outside grid");
 
-        // if site is closed
-        if (!isOpen(row, col)) {
-            // open site
-            sites[row - 1][col - 1] = true;
-            // if row == 1, union with canonical element of filled set
-            if (row == 1) system.union(col, 0);
-            // increment numberOpen
-            numberOpen++;
-        }
+        // an open site is already connected to its open neighbors
+        if (isOpen(row, col)) return;
+
+        // the site's element in the system
+        int site = (row - 1) * n + col;
+
+        // open site
+        sites[(site - 1) >>> 6] |= 1L << (site - 1);
+        // if row == 1, union with canonical element of filled set
+        if (row == 1) system.union(col, 0);
+        // increment numberOpen
+        numberOpen++;
 
         // check each neighbor
         // if neighbor is open && site/neighbor are not connected,
         // then union(site, neighbor)
+        // (row and col are already known to be valid, so each neighbor only
+        // needs the one bound check on the side it lies on)
 
         // left
-        if (validIndex(row, col - 1) && isOpen(row, col - 1)) {
+        if (col > 1 && isOpenSite(site - 1)) {
             // 2 calls to find
-            system.union((row - 1) * n + col, (row - 1) * n + (col - 1));
+            system.union(site, site - 1);
         }
 
         // top
-        if (validIndex(row - 1, col) && isOpen(row - 1, col)) {
+        if (row > 1 && isOpenSite(site - n)) {
             // 2 calls to find
-            system.union((row - 1) * n + col, (row - 2) * n + col);
+            system.union(site, site - n);
         }
 
         // right
-        if (validIndex(row, col + 1) && isOpen(row, col + 1)) {
+        if (col < n && isOpenSite(site + 1)) {
             // 2 calls to find
-            system.union((row - 1) * n + col, (row - 1) * n + (col + 1));
+            system.union(site, site + 1);
         }
 
         // bottom
-        if (validIndex(row + 1, col) && isOpen(row + 1, col)) {
+        if (row < n && isOpenSite(site + n)) {
             // 2 calls to find
-            system.union((row - 1) * n + col, row * n + col);
+            system.union(site, site + n);
         }
 
         // now that the site has been connected to its open neighbors, we check whether the
@@ -87,14 +120,20 @@ public class Percolation {
         // in the filled set - if the filled set contains an element whose position
         // exceeds n * (n - 1), that means the filled set extends to the bottom row and
         // the system percolates
-        if (isFull(row, col)) this.percolates = system.max((row - 1) * n + col) > n * (n - 1);
+        if (isFull(row, col)) this.percolates = system.max(site) > n * (n - 1);
+    }
+
+    // is the site with the given element in the system open?
+    private boolean isOpenSite(int site) {
+        // shifts of a long only use the low 6 bits of the distance
+        return (sites[(site - 1) >>> 6] & (1L << (site - 1))) != 0;
     }
 
     // is the site (row, col) open?
     public boolean isOpen(int row, int col) {
         if (!validIndex(row, col))
             throw new IllegalArgumentException("Requested index outside grid");
-        return sites[row - 1][col - 1];
+        return isOpenSite((row - 1) * n + col);
     }
 
     // is the site (row, col) full?
@@ -109,69 +148,126 @@ public class Percolation {
         return numberOpen;
     }
 
+    // approximate bytes of heap used by this grid: the open-site bits, the
+    // union-find arrays and the array headers
+    public long footprint() {
+        long arrayHeader = 16;
+        long elements = (long) n * n + 1;
+        return (arrayHeader + 8L * sites.length)
+                + (arrayHeader + 4L * elements)
+                + (arrayHeader + 8L * elements);
+    }
+
     // does the system percolate?
     public boolean percolates() {
         return percolates;
     }
 
-    private class WeightedQuickUnionUFWithMax {
-        int[] parent;
-        int[] max;
-        int[] size;
-
-        public WeightedQuickUnionUFWithMax(int n) {
-            parent = new int[n];
-            max = new int[n];
-            size = new int[n];
-            for (int i = 0; i < n; i++) {
-                parent[i] = i;
-                max[i] = i;
-                size[i] = 1;
+    // write the grid to file: a header (magic, n, number of open sites and
+    // whether it percolates) followed by the open-site bits and the two
+    // union-find arrays, little-endian, through memory-mapped buffers. the
+    // grid is written to a temporary file next to file, forced to disk and
+    // then moved over file in one step, so a crash part way through leaves
+    // the previous checkpoint as it was
+    public void save(Path file) throws IOException {
+        if (file == null) throw new IllegalArgumentException("Null file");
+        Path target = file.toAbsolutePath();
+        Path temporary = Files.createTempFile(target.getParent(), target.getFileName().toString(),
+                                              ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.READ,
+                                                        StandardOpenOption.WRITE)) {
+                MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+                header.order(ByteOrder.LITTLE_ENDIAN);
+                header.putInt(MAGIC).putInt(n).putInt(numberOpen).putInt(percolates ? 1 : 0);
+                header.force();
+
+                long position = transfer(channel, FileChannel.MapMode.READ_WRITE, HEADER_BYTES, sites);
+                position = transfer(channel, FileChannel.MapMode.READ_WRITE, position, system.parent);
+                transfer(channel, FileChannel.MapMode.READ_WRITE, position, system.sizeAndMax);
+                channel.force(true);
             }
+            Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE,
+                       StandardCopyOption.REPLACE_EXISTING);
         }
+        finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    // would the union-find of an n-by-n grid, one element per site and one for
+    // the filled set, be too large to hold its size and max arrays?
+    private static boolean tooLarge(int n) {
+        return (long) n * n + 1 > WeightedQuickUnionUFWithMax.MAX_ELEMENTS;
+    }
 
-        public int find(int p) {
-            while (p != parent[p])
-                p = parent[p];
-            return p;
+    // restore a grid written by save(), exactly as it was when saved
+    public static Percolation load(Path file) throws IOException {
+        if (file == null) throw new IllegalArgumentException("Null file");
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES)
+                throw new IllegalArgumentException("Not a percolation file: " + file);
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+            header.order(ByteOrder.LITTLE_ENDIAN);
+            if (header.getInt() != MAGIC)
+                throw new IllegalArgumentException("Not a percolation file: " + file);
+            int n = header.getInt();
+            int numberOpen = header.getInt();
+            boolean percolates = header.getInt() != 0;
+
+            if (n <= 0 || tooLarge(n))
+                throw new IllegalArgumentException("Truncated or corrupt percolation file: " + file);
+            long elements = (long) n * n + 1;
+            long words = ((long) n * n + 63) >>> 6;
+            if (channel.size() != HEADER_BYTES + 8 * words + 12 * elements)
+                throw new IllegalArgumentException("Truncated or corrupt percolation file: " + file);
+
+            long[] sites = new long[(int) words];
+            int[] parent = new int[(int) elements];
+            int[] sizeAndMax = new int[2 * (int) elements];
+            long position = transfer(channel, FileChannel.MapMode.READ_ONLY, HEADER_BYTES, sites);
+            position = transfer(channel, FileChannel.MapMode.READ_ONLY, position, parent);
+            transfer(channel, FileChannel.MapMode.READ_ONLY, position, sizeAndMax);
+            return new Percolation(n, numberOpen, percolates, sites,
+                                   new WeightedQuickUnionUFWithMax(parent, sizeAndMax));
         }
+    }
 
-        public void union(int p, int q) {
-            int rootP = find(p);
-            int rootQ = find(q);
-            if (rootP == rootQ) return;
-
-            // if one of our roots is the canonical root of the
-            // filled set, it must remain the root of the tree
-            // after union
-            if (rootP == 0) {
-                parent[rootQ] = rootP;
-                size[rootP] += size[rootQ];
-                // we always update the max value of the
-                // new tree so that we can determine when we
-                // have reached the bottom level
-                max[rootP] = Math.max(max[rootP], max[rootQ]);
-            }
-            else if (rootQ == 0) {
-                parent[rootP] = rootQ;
-                size[rootQ] += size[rootP];
-                max[rootQ] = Math.max(max[rootP], max[rootQ]);
-            }
-            // otherwise we make the smaller root point to the larger one
-            else if (size[rootP] < size[rootQ]) {
-                parent[rootP] = rootQ;
-                size[rootQ] += size[rootP];
-                max[rootQ] = Math.max(max[rootP], max[rootQ]);
-            }
+    // copy words to (READ_WRITE, forcing each chunk to disk) or from (READ_ONLY)
+    // the file region starting at position, a chunk at a time; returns the
+    // position after the region
+    private static long transfer(FileChannel channel, FileChannel.MapMode mode, long position,
+                                 long[] words) throws IOException {
+        for (int from = 0; from < words.length; ) {
+            int count = (int) Math.min(words.length - from, CHUNK_BYTES / Long.BYTES);
+            MappedByteBuffer chunk = channel.map(mode, position, (long) count * Long.BYTES);
+            chunk.order(ByteOrder.LITTLE_ENDIAN);
+            if (mode == FileChannel.MapMode.READ_ONLY) chunk.asLongBuffer().get(words, from, count);
             else {
-                parent[rootQ] = rootP;
-                size[rootP] += size[rootQ];
-                max[rootP] = Math.max(max[rootP], max[rootQ]);
+                chunk.asLongBuffer().put(words, from, count);
+                chunk.force();
             }
+            position += (long) count * Long.BYTES;
+            from += count;
         }
+        return position;
+    }
 
-        public int max(int p) {
-            return max[find(p)];
+    // as above, for ints
+    private static long transfer(FileChannel channel, FileChannel.MapMode mode, long position,
+                                 int[] values) throws IOException {
+        for (int from = 0; from < values.length; ) {
+            int count = (int) Math.min(values.length - from, CHUNK_BYTES / Integer.BYTES);
+            MappedByteBuffer chunk = channel.map(mode, position, (long) count * Integer.BYTES);
+            chunk.order(ByteOrder.LITTLE_ENDIAN);
+            if (mode == FileChannel.MapMode.READ_ONLY) chunk.asIntBuffer().get(values, from, count);
+            else {
+                chunk.asIntBuffer().put(values, from, count);
+                chunk.force();
+            }
+            position += (long) count * Integer.BYTES;
+            from += count;
         }
+        return position;
     }
-}
\ No newline at end of file
+}
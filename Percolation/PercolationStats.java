@@ -1,21 +1,166 @@
 import edu.princeton.cs.algs4.StdOut;
 import edu.princeton.cs.algs4.StdRandom;
-import edu.princeton.cs.algs4.StdStats;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
 
 public class PercolationStats {
 
+    // how a trial picks the next site to open
+    public enum Mode {
+        // uniformly random sites, which may already be open
+        UNIFORM,
+        // sites in a random order without repeats, so every draw opens a site
+        PERMUTATION
+    }
+
     private static final double CONFIDENCE_95 = 1.96;
-    private double[] trialResults;
+    // trials each thread runs between checks of the confidence interval
+    private static final int TRIALS_PER_ROUND = 16;
+
+    // running count, mean and sum of squared deviations (Welford) of the
+    // trials so far, so that no per-trial results are kept
+    private Accumulator results;
 
     // perform independent trials on an n-by-n grid
     public PercolationStats(int n, int trials) {
         if (n <= 0 || trials <= 0)
             throw new IllegalArgumentException("Grid size and number of trials must be positive");
-        this.trialResults = new double[trials];
-        runTrial(n, trials, this.trialResults);
+        this.results = new Accumulator();
+        runTrial(n, trials, this.results);
+    }
+
+    // perform independent trials on an n-by-n grid, spread over the given number
+    // of threads; the results depend only on seed and threads, so a run can be
+    // repeated exactly
+    public PercolationStats(int n, int trials, long seed, int threads) {
+        this(n, trials, seed, threads, Mode.UNIFORM);
+    }
+
+    // as above, choosing sites to open as mode says
+    public PercolationStats(int n, int trials, long seed, int threads, Mode mode) {
+        this(n, trials, seed, threads, mode, 0, null);
+    }
+
+    // as above, but stop before maxTrials once the 95% confidence interval is
+    // no wider than targetWidth (0 to run every trial), and pass this object to
+    // progress (if it is not null) each time the interval is checked; the
+    // interval is checked after every TRIALS_PER_ROUND trials per thread, so
+    // the trials run still depend only on seed and threads
+    public PercolationStats(int n, int maxTrials, long seed, int threads, Mode mode,
+                            double targetWidth, Consumer<PercolationStats> progress) {
+        if (n <= 0 || maxTrials <= 0)
+            throw new IllegalArgumentException("Grid size and number of trials must be positive");
+        if (threads <= 0) throw new IllegalArgumentException("Number of threads must be positive");
+        if (mode == null) throw new IllegalArgumentException("Null mode");
+        if (!(targetWidth >= 0)) throw new IllegalArgumentException("Target width must be non-negative");
+        this.results = new Accumulator();
+        runTrials(n, maxTrials, seed, threads, mode, targetWidth, progress);
+    }
+
+    // thread w runs trials w, w + threads, w + 2 * threads, ... drawing from its
+    // own stream, split off a generator seeded with seed in thread order. when
+    // the run may stop early or reports progress, the threads run in rounds;
+    // otherwise each runs its whole share in one task. either way the results
+    // are merged in thread order, so the same trials give exactly the same
+    // statistics
+    private void runTrials(int n, int maxTrials, long seed, int threads, Mode mode,
+                           double targetWidth, Consumer<PercolationStats> progress) {
+        SplittableRandom root = new SplittableRandom(seed);
+        Worker[] workers = new Worker[threads];
+        for (int w = 0; w < threads; w++) workers[w] = new Worker(n, mode, root.split());
+        long perRound = targetWidth > 0 || progress != null ? (long) threads * TRIALS_PER_ROUND
+                                                            : maxTrials;
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            for (long first = 0; first < maxTrials; first += perRound) {
+                int end = (int) Math.min(maxTrials, first + perRound);
+                List<Callable<Accumulator>> round = new ArrayList<>();
+                for (int w = 0; w < threads; w++) {
+                    Worker worker = workers[w];
+                    int start = (int) Math.min(end, first + w);
+                    round.add(() -> worker.run(start, end, threads));
+                }
+                for (Future<Accumulator> worker : pool.invokeAll(round)) results.merge(worker.get());
+
+                if (progress != null) progress.accept(this);
+                if (targetWidth > 0 && results.count() > 1 && confidenceHi() - confidenceLo() <= targetWidth)
+                    break;
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while running trials", e);
+        }
+        catch (ExecutionException e) {
+            throw new IllegalStateException("Trial failed", e.getCause());
+        }
+        finally {
+            pool.shutdown();
+        }
+    }
+
+    // the state one thread keeps between rounds
+    private static class Worker {
+        private int n;
+        private Mode mode;
+        private SplittableRandom random;
+        private int[] order;
+
+        Worker(int n, Mode mode, SplittableRandom random) {
+            this.n = n;
+            this.mode = mode;
+            this.random = random;
+            if (mode == Mode.PERMUTATION) {
+                this.order = new int[n * n];
+                for (int i = 0; i < order.length; i++) order[i] = i;
+            }
+        }
+
+        // run trials start, start + step, ... below end
+        Accumulator run(int start, int end, int step) {
+            Accumulator results = new Accumulator();
+            for (int i = start; i < end; i += step) {
+                results.add(mode == Mode.PERMUTATION ? runTrial(n, random, order)
+                                                     : runTrial(n, random));
+            }
+            return results;
+        }
+    }
+
+    // the fraction of sites open when a new n-by-n grid first percolates
+    private static double runTrial(int n, SplittableRandom random) {
+        Percolation percolation = new Percolation(n);
+        while (!percolation.percolates()) {
+            percolation.open(random.nextInt(1, n + 1), random.nextInt(1, n + 1));
+        }
+        return (double) percolation.numberOfOpenSites() / (n * n);
+    }
+
+    // the fraction of sites open when a new n-by-n grid first percolates, opening
+    // sites in the order of a Fisher-Yates shuffle of order that is only carried
+    // as far as the sites actually opened; any starting order gives a uniformly
+    // random one, so the array is reused between trials without being reset
+    private static double runTrial(int n, SplittableRandom random, int[] order) {
+        Percolation percolation = new Percolation(n);
+        for (int k = 0; !percolation.percolates(); k++) {
+            int j = random.nextInt(k, order.length);
+            int site = order[j];
+            order[j] = order[k];
+            order[k] = site;
+            percolation.open(site / n + 1, site % n + 1);
+        }
+        return (double) percolation.numberOfOpenSites() / (n * n);
     }
 
-    private static void runTrial(int n, int trials, double[] trialResults) {
+    private static void runTrial(int n, int trials, Accumulator results) {
         for (int i = 0; i < trials; i++) {
             Percolation percolation = new Percolation(n);
 
@@ -27,36 +172,94 @@ public class PercolationStats {
                 percolation.open(row, col);
             }
 
-            trialResults[i] = (double) percolation.numberOfOpenSites() / (
-                    n * n);
+            results.add((double) percolation.numberOfOpenSites() / (
+                    n * n));
         }
     }
 
+    // number of trials run, which is fewer than asked for if they stopped early
+    public int trials() {
+        return (int) results.count();
+    }
+
     // sample mean of percolation threshold
     public double mean() {
-        return StdStats.mean(trialResults);
+        return results.mean();
     }
 
     // sample standard deviation of percolation threshold
     public double stddev() {
-        return StdStats.stddev(trialResults);
+        return results.stddev();
     }
 
     // low endpoint of 95% confidence interval
     public double confidenceLo() {
-        return mean() - ((CONFIDENCE_95 * stddev()) / Math.sqrt(trialResults.length));
+        return mean() - ((CONFIDENCE_95 * stddev()) / Math.sqrt(results.count()));
     }
 
     // high endpoint of 95% confidence interval
     public double confidenceHi() {
-        return mean() + ((CONFIDENCE_95 * stddev()) / Math.sqrt(trialResults.length));
+        return mean() + ((CONFIDENCE_95 * stddev()) / Math.sqrt(results.count()));
+    }
+
+    // Welford's running mean and sum of squared deviations, which, unlike
+    // summing squares, stays accurate however many trials there are; two
+    // accumulators merge by Chan et al.'s pairwise update
+    private static class Accumulator {
+        private long count;
+        private double mean;
+        private double m2;
+
+        void add(double x) {
+            count++;
+            double delta = x - mean;
+            mean += delta / count;
+            m2 += delta * (x - mean);
+        }
+
+        void merge(Accumulator other) {
+            if (other.count == 0) return;
+            long total = count + other.count;
+            double delta = other.mean - mean;
+            mean += delta * other.count / total;
+            m2 += other.m2 + delta * delta * ((double) count * other.count / total);
+            count = total;
+        }
+
+        long count() {
+            return count;
+        }
+
+        double mean() {
+            return count == 0 ? Double.NaN : mean;
+        }
+
+        // sample standard deviation, dividing by count - 1 as StdStats.stddev
+        // does; the two agree up to floating-point rounding, since the
+        // results are added in a different order
+        double stddev() {
+            return Math.sqrt(m2 / (count - 1));
+        }
     }
 
     // test client (see below)
     public static void main(String[] args) {
         int n = Integer.parseInt(args[0]);
         int trials = Integer.parseInt(args[1]);
-        PercolationStats percolationStats = new PercolationStats(n, trials);
+        // optional seed, thread count and mode (UNIFORM or PERMUTATION) for a
+        // parallel, repeatable run, and a confidence interval width to stop
+        // at, printing progress as it goes
+        Mode mode = args.length > 4 ? Mode.valueOf(args[4]) : Mode.UNIFORM;
+        double targetWidth = args.length > 5 ? Double.parseDouble(args[5]) : 0;
+        Consumer<PercolationStats> progress = targetWidth == 0 ? null : stats ->
+                StdOut.printf("%d trials, 95%% confidence interval width = %.10f%n",
+                              stats.trials(), stats.confidenceHi() - stats.confidenceLo());
+        PercolationStats percolationStats = args.length > 3
+                                            ? new PercolationStats(n, trials,
+                                                                   Long.parseLong(args[2]),
+                                                                   Integer.parseInt(args[3]),
+                                                                   mode, targetWidth, progress)
+                                            : new PercolationStats(n, trials);
 
         StdOut.printf("mean = %.10f%n", percolationStats.mean());
         StdOut.printf("stddev = %.10f%n", percolationStats.stddev());
@@ -0,0 +1,224 @@
+import edu.princeton.cs.algs4.StdOut;
+import edu.princeton.cs.algs4.StdRandom;
+
+import java.util.SplittableRandom;
+
+// Newman-Ziff sweep: each trial opens all n^2 sites of a grid one at a time in
+// a random order, with a single union-find, and records after every open
+// whether the grid spans top to bottom and how large its largest cluster is.
+// one pass per trial gives both curves for every number of open sites k, and
+// the curves for a site probability p are weighted sums of those (see
+// spanningProbability(double) and largestCluster(double))
+public class PercolationSweep {
+
+    private int n;
+    private int trials;
+
+    // spanning[k] = number of trials spanning with k sites open
+    private long[] spanning;
+    // largest[k] = largest cluster sizes with k sites open, summed over trials
+    private long[] largest;
+    // open sites when each trial first spanned, summed over trials
+    private long firstSpanning;
+
+    // sweep an n-by-n grid in trials random orders, drawn from StdRandom
+    public PercolationSweep(int n, int trials) {
+        this(n, trials, null);
+    }
+
+    // sweep an n-by-n grid in trials random orders, drawn from a generator
+    // seeded with seed, so a run can be repeated exactly
+    public PercolationSweep(int n, int trials, long seed) {
+        this(n, trials, new SplittableRandom(seed));
+    }
+
+    private PercolationSweep(int n, int trials, SplittableRandom random) {
+        if (n <= 0 || trials <= 0)
+            throw new IllegalArgumentException("Grid size and number of trials must be positive");
+        this.n = n;
+        this.trials = trials;
+        this.spanning = new long[n * n + 1];
+        this.largest = new long[n * n + 1];
+
+        Trial trial = new Trial(n);
+        int[] order = new int[n * n];
+        long[] firstSpans = new long[n * n + 2];
+        for (int t = 0; t < trials; t++) {
+            for (int i = 0; i < order.length; i++) order[i] = i;
+            if (random == null) StdRandom.shuffle(order);
+            else shuffle(order, random);
+            firstSpans[trial.run(order, largest)]++;
+        }
+
+        // a grid that spans keeps spanning as more sites open
+        long spanned = 0;
+        for (int k = 0; k <= n * n; k++) {
+            spanned += firstSpans[k];
+            spanning[k] = spanned;
+            firstSpanning += k * firstSpans[k];
+        }
+    }
+
+    private static void shuffle(int[] order, SplittableRandom random) {
+        for (int i = order.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int site = order[j];
+            order[j] = order[i];
+            order[i] = site;
+        }
+    }
+
+    // number of sites in the grid
+    public int sites() {
+        return n * n;
+    }
+
+    // fraction of trials in which the grid spans with k sites open
+    public double spanningProbability(int k) {
+        validate(k);
+        return (double) spanning[k] / trials;
+    }
+
+    // mean size of the largest cluster with k sites open, as a fraction of all sites
+    public double largestCluster(int k) {
+        validate(k);
+        return (double) largest[k] / trials / (n * n);
+    }
+
+    // probability that the grid spans when each site is open with probability p
+    public double spanningProbability(double p) {
+        return weighted(spanning, p);
+    }
+
+    // mean size of the largest cluster, as a fraction of all sites, when each
+    // site is open with probability p
+    public double largestCluster(double p) {
+        return weighted(largest, p) / (n * n);
+    }
+
+    // sample mean of percolation threshold, the same estimate PercolationStats
+    // makes from the same number of trials
+    public double threshold() {
+        return (double) firstSpanning / trials / (n * n);
+    }
+
+    private void validate(int k) {
+        if (k < 0 || k > n * n) throw new IllegalArgumentException("Number of open sites outside grid");
+    }
+
+    // the sum over k of perTrial[k] / trials, weighted by the binomial
+    // probability of k of the n^2 sites being open. the weights are built
+    // outwards from the most likely k by their ratios and normalized at the
+    // end, which neither overflows nor needs factorials
+    private double weighted(long[] perTrial, double p) {
+        if (!(p >= 0 && p <= 1)) throw new IllegalArgumentException("Probability must be in [0, 1]");
+        int sites = n * n;
+        if (p == 0) return (double) perTrial[0] / trials;
+        if (p == 1) return (double) perTrial[sites] / trials;
+
+        int mode = (int) Math.min(sites, Math.floor((sites + 1) * p));
+        double sum = perTrial[mode], total = 1, weight = 1;
+        for (int k = mode + 1; k <= sites && weight > 1e-300; k++) {
+            weight *= (double) (sites - k + 1) / k * p / (1 - p);
+            sum += weight * perTrial[k];
+            total += weight;
+        }
+        weight = 1;
+        for (int k = mode - 1; k >= 0 && weight > 1e-300; k--) {
+            weight *= (double) (k + 1) / (sites - k) * (1 - p) / p;
+            sum += weight * perTrial[k];
+            total += weight;
+        }
+        return sum / total / trials;
+    }
+
+    // the union-find of one trial, reused for every trial; roots carry the
+    // size of their cluster and whether it touches the top and bottom rows
+    private static class Trial {
+        private static final byte TOP = 1;
+        private static final byte BOTTOM = 2;
+
+        private int n;
+        private boolean[] open;
+        private int[] parent;
+        private int[] size;
+        private byte[] flags;
+
+        Trial(int n) {
+            this.n = n;
+            this.open = new boolean[n * n];
+            this.parent = new int[n * n];
+            this.size = new int[n * n];
+            this.flags = new byte[n * n];
+        }
+
+        // open the sites in order, adding the largest cluster size after each
+        // open to largest[k]; returns the number of open sites at which the
+        // grid first spanned
+        int run(int[] order, long[] largest) {
+            for (int i = 0; i < n * n; i++) {
+                open[i] = false;
+                parent[i] = i;
+                size[i] = 1;
+                flags[i] = 0;
+            }
+            int firstSpan = -1, biggest = 0;
+            for (int k = 1; k <= order.length; k++) {
+                int site = order[k - 1], row = site / n, col = site % n;
+                open[site] = true;
+                if (row == 0) flags[site] |= TOP;
+                if (row == n - 1) flags[site] |= BOTTOM;
+
+                if (col > 0 && open[site - 1]) union(site, site - 1);
+                if (row > 0 && open[site - n]) union(site, site - n);
+                if (col < n - 1 && open[site + 1]) union(site, site + 1);
+                if (row < n - 1 && open[site + n]) union(site, site + n);
+
+                int root = find(site);
+                biggest = Math.max(biggest, size[root]);
+                largest[k] += biggest;
+                if (firstSpan < 0 && flags[root] == (TOP | BOTTOM)) firstSpan = k;
+            }
+            return firstSpan;
+        }
+
+        private int find(int p) {
+            while (p != parent[p]) {
+                parent[p] = parent[parent[p]];
+                p = parent[p];
+            }
+            return p;
+        }
+
+        private void union(int p, int q) {
+            int rootP = find(p);
+            int rootQ = find(q);
+            if (rootP == rootQ) return;
+            if (size[rootP] < size[rootQ]) {
+                int swap = rootP;
+                rootP = rootQ;
+                rootQ = swap;
+            }
+            parent[rootQ] = rootP;
+            size[rootP] += size[rootQ];
+            flags[rootP] |= flags[rootQ];
+        }
+    }
+
+    // sweeps an n-by-n grid args[0] in args[1] trials, with optional seed
+    // args[2], and prints both curves for p from 0.50 to 0.70
+    public static void main(String[] args) {
+        int n = Integer.parseInt(args[0]);
+        int trials = Integer.parseInt(args[1]);
+        PercolationSweep sweep = args.length > 2
+                                 ? new PercolationSweep(n, trials, Long.parseLong(args[2]))
+                                 : new PercolationSweep(n, trials);
+
+        StdOut.printf("mean threshold = %.10f%n", sweep.threshold());
+        StdOut.println("   p   spanning  largest cluster");
+        for (int i = 50; i <= 70; i++) {
+            double p = i / 100.0;
+            StdOut.printf("%.2f  %9.6f  %15.6f%n", p, sweep.spanningProbability(p), sweep.largestCluster(p));
+        }
+    }
+}
@@ -0,0 +1,155 @@
+import edu.princeton.cs.algs4.In;
+import edu.princeton.cs.algs4.StdOut;
+
+// decides whether a grid n sites wide percolates while reading it one row at
+// a time (Hoshen-Kopelman style): only the cluster labels of the last row read
+// are kept, along with whether each cluster reaches the top row, so memory
+// grows with n and not with the number of rows
+public class StreamingPercolation {
+    private int n;
+
+    private long rows;
+
+    // cluster label of each site in the last row read; -1 for a closed site
+    private int[] label;
+
+    // is the cluster with each label connected to the top row?
+    private boolean[] labelFull;
+
+    private boolean percolates;
+
+    // scratch space for joining a new row onto the last one: elements 0 to
+    // n - 1 are the clusters of the last row and elements n to 2n - 1 are the
+    // sites of the new row
+    private int[] parent;
+    private boolean[] full;
+    private int[] relabel;
+
+    // creates a grid n sites wide with no rows yet
+    public StreamingPercolation(int n) {
+        if (n <= 0) throw new IllegalArgumentException("Grid must have positive dimensions");
+        this.n = n;
+        this.rows = 0;
+        this.label = new int[n];
+        this.labelFull = new boolean[n];
+        this.parent = new int[2 * n];
+        this.full = new boolean[2 * n];
+        this.relabel = new int[2 * n];
+        this.percolates = false;
+    }
+
+    // adds a row to the bottom of the grid; site col (0-based) of the row is
+    // open if bit col % 64 of row[col / 64] is set
+    public void addRow(long[] row) {
+        if (row == null) throw new IllegalArgumentException("Null row");
+        if (row.length < (n + 63) >>> 6) throw new IllegalArgumentException("Row is too short");
+
+        for (int i = 0; i < 2 * n; i++) {
+            parent[i] = i;
+            full[i] = i < n ? labelFull[i] : rows == 0;
+        }
+
+        // join each open site to the open site on its left and to the cluster above it
+        for (int col = 0; col < n; col++) {
+            if (!isOpen(row, col)) continue;
+            if (col > 0 && isOpen(row, col - 1)) union(n + col, n + col - 1);
+            if (rows > 0 && label[col] >= 0) union(n + col, label[col]);
+        }
+
+        // a cluster is connected to the top if any of its parts was
+        for (int i = 0; i < 2 * n; i++) {
+            if (full[i]) full[find(i)] = true;
+        }
+
+        // number the new row's clusters from 0 so they fit the next row's elements
+        for (int i = 0; i < 2 * n; i++) relabel[i] = -1;
+        int clusters = 0;
+        percolates = false;
+        for (int col = 0; col < n; col++) {
+            if (!isOpen(row, col)) {
+                label[col] = -1;
+                continue;
+            }
+            int root = find(n + col);
+            if (relabel[root] < 0) {
+                relabel[root] = clusters;
+                labelFull[clusters] = full[root];
+                clusters++;
+            }
+            label[col] = relabel[root];
+            if (full[root]) percolates = true;
+        }
+        rows++;
+    }
+
+    // adds a row to the bottom of the grid; site col (0-based) of the row is open if row[col] is
+    public void addRow(boolean[] row) {
+        if (row == null) throw new IllegalArgumentException("Null row");
+        if (row.length != n) throw new IllegalArgumentException("Row must have n sites");
+        long[] words = new long[(n + 63) >>> 6];
+        for (int col = 0; col < n; col++) {
+            if (row[col]) words[col >>> 6] |= 1L << col;
+        }
+        addRow(words);
+    }
+
+    // number of sites in each row
+    public int width() {
+        return n;
+    }
+
+    // number of rows read so far
+    public long rows() {
+        return rows;
+    }
+
+    // is an open site in the last row read connected to the top row? once this
+    // is false for a row it stays false for every row after it
+    public boolean percolates() {
+        return percolates;
+    }
+
+    // approximate bytes of heap used by the labels and scratch space
+    public long footprint() {
+        long arrayHeader = 16;
+        return (arrayHeader + 4L * n) + (arrayHeader + n)
+                + 2 * (arrayHeader + 4L * 2 * n) + (arrayHeader + 2L * n);
+    }
+
+    private static boolean isOpen(long[] row, int col) {
+        return (row[col >>> 6] & (1L << col)) != 0;
+    }
+
+    private int find(int p) {
+        while (p != parent[p]) {
+            parent[p] = parent[parent[p]];
+            p = parent[p];
+        }
+        return p;
+    }
+
+    private void union(int p, int q) {
+        int rootP = find(p);
+        int rootQ = find(q);
+        if (rootP != rootQ) parent[rootP] = rootQ;
+    }
+
+    // reads the width n of the grid followed by its rows of n zeros (closed)
+    // and ones (open) from the file args[0], however many rows there are
+    public static void main(String[] args) {
+        In in = new In(args[0]);
+        int n = in.readInt();
+        StreamingPercolation percolation = new StreamingPercolation(n);
+        long[] row = new long[(n + 63) >>> 6];
+        while (!in.isEmpty()) {
+            for (int i = 0; i < row.length; i++) row[i] = 0;
+            for (int col = 0; col < n; col++) {
+                if (in.readInt() != 0) row[col >>> 6] |= 1L << col;
+            }
+            percolation.addRow(row);
+        }
+
+        StdOut.println("rows = " + percolation.rows());
+        StdOut.println("percolates = " + percolation.percolates());
+    }
+}
@@ -0,0 +1,72 @@
+// weighted quick-union that also tracks the largest element of every set.
+// element 0 is kept as the root of its set, so that callers can use it as the
+// canonical element of the filled set (see Percolation and LatticePercolation)
+class WeightedQuickUnionUFWithMax {
+    int[] parent;
+    // size and max of each root, interleaved so that a union touches one
+    // cache line per root: sizeAndMax[2 * p] = size, sizeAndMax[2 * p + 1] = max
+    int[] sizeAndMax;
+
+    // most elements a union-find can hold, since sizeAndMax needs two ints each
+    static final int MAX_ELEMENTS = Integer.MAX_VALUE / 2;
+
+    public WeightedQuickUnionUFWithMax(int n) {
+        if (n > MAX_ELEMENTS)
+            throw new IllegalArgumentException("Union-find has too many elements");
+        parent = new int[n];
+        sizeAndMax = new int[2 * n];
+        for (int i = 0; i < n; i++) {
+            parent[i] = i;
+            sizeAndMax[2 * i] = 1;
+            sizeAndMax[2 * i + 1] = i;
+        }
+    }
+
+    // a union-find over the given arrays, as saved from another one
+    WeightedQuickUnionUFWithMax(int[] parent, int[] sizeAndMax) {
+        if (sizeAndMax.length != 2 * parent.length)
+            throw new IllegalArgumentException("Arrays do not describe the same elements");
+        this.parent = parent;
+        this.sizeAndMax = sizeAndMax;
+    }
+
+    public int find(int p) {
+        // path halving: point every other node on the path at its grandparent,
+        // which keeps trees flat without a second pass
+        while (p != parent[p]) {
+            parent[p] = parent[parent[p]];
+            p = parent[p];
+        }
+        return p;
+    }
+
+    public void union(int p, int q) {
+        int rootP = find(p);
+        int rootQ = find(q);
+        if (rootP == rootQ) return;
+
+        // if one of our roots is the canonical root of the
+        // filled set, it must remain the root of the tree
+        // after union
+        if (rootP == 0) link(rootQ, rootP);
+        else if (rootQ == 0) link(rootP, rootQ);
+        // otherwise we make the smaller root point to the larger one
+        else if (sizeAndMax[2 * rootP] < sizeAndMax[2 * rootQ]) link(rootP, rootQ);
+        else link(rootQ, rootP);
+    }
+
+    // make root child a subtree of root
+    private void link(int child, int root) {
+        parent[child] = root;
+        sizeAndMax[2 * root] += sizeAndMax[2 * child];
+        // we always update the max value of the
+        // new tree so that we can determine when we
+        // have reached the bottom level
+        sizeAndMax[2 * root + 1] = Math.max(sizeAndMax[2 * root + 1],
+                                            sizeAndMax[2 * child + 1]);
+    }
+
+    public int max(int p) {
+        return sizeAndMax[2 * find(p) + 1];
+    }
+}